@@ -0,0 +1,79 @@
+package com.xlf.nrl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NsRefreshLayout拖动和回弹每一帧的计算
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PullMathBenchmark {
+
+    private static final float OVER_HEIGHT = 240f;
+    private static final float FINAL_HEIGHT = 180f;
+    private static final float DRAG_STEP = 7f;
+    private static final float FRAME_SECONDS = 1 / 60f;
+    /**
+     * 默认刚度1000对应的ω
+     */
+    private static final float OMEGA = (float) Math.sqrt(1000);
+
+    private float offset;
+    private float direction;
+    private float settleTime;
+
+    @Setup
+    public void setUp() {
+        offset = 0;
+        direction = 1;
+        settleTime = 0;
+    }
+
+    /**
+     * 一次拖动更新：限制露出高度、计算进度条旋转比例、判断是否达到触发高度。
+     * 在0和回弹高度之间来回拖动，避免高度停在边界上。
+     */
+    @Benchmark
+    public void dragStep(Blackhole bh) {
+        float next = PullMath.clampOffset(offset + DRAG_STEP * direction, OVER_HEIGHT);
+        if (next == 0 || next == OVER_HEIGHT) {
+            direction = -direction;
+        }
+        offset = next;
+        bh.consume(PullMath.rotationFraction(next, OVER_HEIGHT));
+        bh.consume(PullMath.reachesTrigger(next, OVER_HEIGHT));
+    }
+
+    /**
+     * 回弹动画一帧：弹簧位移和速度
+     */
+    @Benchmark
+    public void settleFrame(Blackhole bh) {
+        float t = settleTime + FRAME_SECONDS;
+        if (t > 0.5f) {
+            t = 0;
+        }
+        settleTime = t;
+        final float decay = (float) Math.exp(-OMEGA * t);
+        final float x0 = OVER_HEIGHT - FINAL_HEIGHT;
+        final float displacement = PullMath.springDisplacement(x0, 0, OMEGA, t, decay);
+        bh.consume(PullMath.clampOffset(FINAL_HEIGHT + displacement, OVER_HEIGHT));
+        bh.consume(PullMath.springVelocity(x0, 0, OMEGA, t, decay));
+    }
+}
@@ -0,0 +1,76 @@
+package com.xlf.nrl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MaterialProgressDrawable旋转动画每一帧的圆弧首尾和旋转计算
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpinnerMathBenchmark {
+
+    /**
+     * 一圈1333ms，60帧/秒时每帧的进度
+     */
+    private static final float FRAME_STEP = 1000f / 60 / 1333;
+
+    private final float[] frame = new float[SpinnerMath.FRAME_SIZE];
+    private float minProgressArc;
+    private float interpolatedTime;
+    private float rotationCount;
+
+    @Setup
+    public void setUp() {
+        //42dp的进度条，密度为3
+        minProgressArc = SpinnerMath.minProgressArc(9f, 31.5);
+        interpolatedTime = 0;
+        rotationCount = 0;
+    }
+
+    private float nextTime() {
+        float t = interpolatedTime + FRAME_STEP;
+        if (t > 1) {
+            t = 0;
+            rotationCount = (rotationCount + 1) % 5;
+        }
+        interpolatedTime = t;
+        return t;
+    }
+
+    /**
+     * 旋转过程中的一帧（原applyTransformation）
+     */
+    @Benchmark
+    public void progressFrame(Blackhole bh) {
+        SpinnerMath.progressFrame(nextTime(), 0.1f, 0.3f, 0.25f, minProgressArc,
+                rotationCount, frame);
+        bh.consume(frame);
+    }
+
+    /**
+     * 收起拖动留下的圆弧时的一帧（原applyFinishTranslation）
+     */
+    @Benchmark
+    public void finishFrame(Blackhole bh) {
+        final float startingRotation = 0.6f;
+        SpinnerMath.finishFrame(nextTime(), 0f, 0.75f, startingRotation,
+                SpinnerMath.finishTargetRotation(startingRotation), frame);
+        bh.consume(frame);
+    }
+}
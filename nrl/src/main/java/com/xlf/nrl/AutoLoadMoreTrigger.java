@@ -0,0 +1,270 @@
+package com.xlf.nrl;
+
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
+
+/**
+ * 自动加载更多的触发器，每个内容视图只注册一个滚动监听，在窗口分离时注销。
+ * RecyclerView使用OnScrollListener，在向下滚动、滚动停止或惯性滑动时检查；
+ * 其他视图使用ViewTreeObserver。两种方式都合并到下一帧，每帧最多检查一次。
+ * 支持按条目数或像素距离提前触发加载更多。
+ */
+class AutoLoadMoreTrigger {
+
+    interface Callback {
+        /**
+         * 内容视图发生了滚动，可以检查是否需要加载更多
+         */
+        void onCheckLoadMore();
+    }
+
+    private static final boolean RECYCLER_VIEW_AVAILABLE = isRecyclerViewAvailable();
+
+    private final View mHostView;
+    private final Callback mCallback;
+    private View mContentView;
+    /**
+     * RecyclerView.OnScrollListener，用Object保存以免RecyclerView不存在时加载失败
+     */
+    private Object mRecyclerScrollListener;
+    private boolean mCheckPosted;
+    /**
+     * 已经提前加载过一次，内容增加或滚出提前加载的范围前不再触发
+     */
+    private boolean mPrefetchDispatched;
+    /**
+     * 提前加载时内容的条目数或高度
+     */
+    private int mPrefetchContentSize;
+
+    private final ViewTreeObserver.OnScrollChangedListener mScrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    scheduleCheck();
+                }
+            };
+
+    private final Runnable mCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mCheckPosted = false;
+            mCallback.onCheckLoadMore();
+        }
+    };
+
+    /**
+     * @param hostView 内容视图的父容器，在它的onAttachedToWindow和onDetachedFromWindow中调用
+     *                 {@link #attach(View)}和{@link #detach()}
+     */
+    AutoLoadMoreTrigger(View hostView, Callback callback) {
+        mHostView = hostView;
+        mCallback = callback;
+    }
+
+    /**
+     * 开始监听内容视图的滚动，重复调用只会注册一次
+     */
+    void attach(View contentView) {
+        if (contentView == mContentView) {
+            return;
+        }
+        detach();
+        if (contentView == null) {
+            return;
+        }
+        mContentView = contentView;
+        if (RECYCLER_VIEW_AVAILABLE && contentView instanceof RecyclerView) {
+            mRecyclerScrollListener = RecyclerScrollHelper.addListener(contentView, this);
+        } else {
+            mHostView.getViewTreeObserver().addOnScrollChangedListener(mScrollChangedListener);
+        }
+    }
+
+    /**
+     * 在下一帧检查，同一帧内多次滚动只检查一次
+     */
+    private void scheduleCheck() {
+        if (!mCheckPosted && mContentView != null) {
+            mCheckPosted = true;
+            ViewCompat.postOnAnimation(mContentView, mCheckRunnable);
+        }
+    }
+
+    /**
+     * 注销滚动监听。
+     * 父容器的onAttachedToWindow和onDetachedFromWindow回调时内容视图都没有附加在窗口上，
+     * 它的ViewTreeObserver是临时对象，附加后会合并到窗口的observer并失效，无法再注销。
+     * 所以通过父容器取窗口的observer，并且注销时重新取，不缓存注册时的对象
+     */
+    void detach() {
+        if (mContentView == null) {
+            return;
+        }
+        if (mRecyclerScrollListener != null) {
+            RecyclerScrollHelper.removeListener(mContentView, mRecyclerScrollListener);
+            mRecyclerScrollListener = null;
+        } else {
+            mHostView.getViewTreeObserver().removeOnScrollChangedListener(mScrollChangedListener);
+        }
+        mContentView.removeCallbacks(mCheckRunnable);
+        mCheckPosted = false;
+        mPrefetchDispatched = false;
+        mContentView = null;
+    }
+
+    /**
+     * 是否需要提前加载更多。触发一次后，只有内容的条目数或高度超过触发时的值，
+     * 或者滚出提前加载的范围后才会再次触发，避免没有新数据时每次滚动都重复加载
+     *
+     * @see #isWithinPrefetchDistance(int, int)
+     */
+    boolean shouldPrefetch(int prefetchItems, int prefetchDistance) {
+        if (!isWithinPrefetchDistance(prefetchItems, prefetchDistance)) {
+            mPrefetchDispatched = false;
+            return false;
+        }
+        int contentSize = getContentSize();
+        if (mPrefetchDispatched && contentSize <= mPrefetchContentSize) {
+            return false;
+        }
+        mPrefetchDispatched = true;
+        mPrefetchContentSize = contentSize;
+        return true;
+    }
+
+    /**
+     * @return 列表的条目数，或单个子视图的滚动容器中子视图的高度
+     */
+    private int getContentSize() {
+        if (RECYCLER_VIEW_AVAILABLE && mContentView instanceof RecyclerView) {
+            return RecyclerScrollHelper.getItemCount(mContentView);
+        }
+        if (mContentView instanceof AbsListView) {
+            return ((AbsListView) mContentView).getCount();
+        }
+        if (mContentView instanceof ViewGroup && ((ViewGroup) mContentView).getChildCount() == 1) {
+            return ((ViewGroup) mContentView).getChildAt(0).getHeight();
+        }
+        return 0;
+    }
+
+    /**
+     * 内容视图是否已滚动到距离底部指定条目数或像素距离以内
+     *
+     * @param prefetchItems    距离最后一个条目的条目数，小于等于0表示不按条目数判断
+     * @param prefetchDistance 距离底部的像素距离，小于等于0表示不按距离判断
+     */
+    boolean isWithinPrefetchDistance(int prefetchItems, int prefetchDistance) {
+        if (mContentView == null || (prefetchItems <= 0 && prefetchDistance <= 0)) {
+            return false;
+        }
+        if (RECYCLER_VIEW_AVAILABLE && mContentView instanceof RecyclerView) {
+            return RecyclerScrollHelper.isWithinPrefetchDistance(mContentView, prefetchItems,
+                    prefetchDistance);
+        }
+        if (mContentView instanceof AbsListView) {
+            AbsListView listView = (AbsListView) mContentView;
+            int count = listView.getCount();
+            int childCount = listView.getChildCount();
+            if (count == 0 || childCount == 0) {
+                return false;
+            }
+            int lastVisible = listView.getLastVisiblePosition();
+            if (prefetchItems > 0 && count - 1 - lastVisible <= prefetchItems) {
+                return true;
+            }
+            if (prefetchDistance > 0 && lastVisible == count - 1) {
+                int remain = listView.getChildAt(childCount - 1).getBottom()
+                        - (listView.getHeight() - listView.getPaddingBottom());
+                return remain <= prefetchDistance;
+            }
+            return false;
+        }
+        //ScrollView等只有一个子视图的滚动容器按距离判断
+        if (prefetchDistance > 0 && mContentView instanceof ViewGroup
+                && ((ViewGroup) mContentView).getChildCount() == 1) {
+            View child = ((ViewGroup) mContentView).getChildAt(0);
+            int remain = child.getBottom() + mContentView.getPaddingBottom()
+                    - mContentView.getScrollY() - mContentView.getHeight();
+            return remain <= prefetchDistance;
+        }
+        return false;
+    }
+
+    private static boolean isRecyclerViewAvailable() {
+        try {
+            Class.forName("android.support.v7.widget.RecyclerView");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * RecyclerView的监听和位置计算放在这里，只有RecyclerView存在时才会加载。
+     * 外部的instanceof RecyclerView判断都先检查RECYCLER_VIEW_AVAILABLE，RecyclerView不存在时不会执行
+     */
+    private static class RecyclerScrollHelper {
+
+        static Object addListener(View view, final AutoLoadMoreTrigger trigger) {
+            RecyclerView.OnScrollListener listener = new RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                    if (newState != RecyclerView.SCROLL_STATE_DRAGGING) {
+                        trigger.scheduleCheck();
+                    }
+                }
+
+                @Override
+                public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                    if (dy > 0) {
+                        trigger.scheduleCheck();
+                    }
+                }
+            };
+            ((RecyclerView) view).addOnScrollListener(listener);
+            return listener;
+        }
+
+        static void removeListener(View view, Object listener) {
+            ((RecyclerView) view).removeOnScrollListener((RecyclerView.OnScrollListener) listener);
+        }
+
+        static int getItemCount(View view) {
+            RecyclerView.LayoutManager layoutManager = ((RecyclerView) view).getLayoutManager();
+            return layoutManager == null ? 0 : layoutManager.getItemCount();
+        }
+
+        static boolean isWithinPrefetchDistance(View view, int prefetchItems, int prefetchDistance) {
+            RecyclerView recyclerView = (RecyclerView) view;
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (layoutManager == null || layoutManager.getItemCount() == 0) {
+                return false;
+            }
+            if (prefetchItems > 0) {
+                //取屏幕上最大的适配器位置，适用于所有LayoutManager
+                int lastVisible = RecyclerView.NO_POSITION;
+                for (int i = layoutManager.getChildCount() - 1; i >= 0; i--) {
+                    lastVisible = Math.max(lastVisible,
+                            layoutManager.getPosition(layoutManager.getChildAt(i)));
+                }
+                if (lastVisible != RecyclerView.NO_POSITION
+                        && layoutManager.getItemCount() - 1 - lastVisible <= prefetchItems) {
+                    return true;
+                }
+            }
+            if (prefetchDistance > 0) {
+                int remain = recyclerView.computeVerticalScrollRange()
+                        - recyclerView.computeVerticalScrollOffset()
+                        - recyclerView.computeVerticalScrollExtent();
+                return remain <= prefetchDistance;
+            }
+            return false;
+        }
+    }
+}
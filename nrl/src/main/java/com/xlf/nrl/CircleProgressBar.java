@@ -21,16 +21,15 @@ import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.RadialGradient;
-import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.ShapeDrawable;
 import android.graphics.drawable.shapes.OvalShape;
 import android.net.Uri;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.view.Gravity;
+import android.view.View;
 import android.view.animation.Animation;
 import android.widget.ImageView;
 
@@ -40,8 +39,6 @@ import android.widget.ImageView;
  */
 public class CircleProgressBar extends ImageView {
 
-    private static final int KEY_SHADOW_COLOR = 0x1E000000;
-    private static final int FILL_SHADOW_COLOR = 0x3D000000;
     // PX
     private static final float X_OFFSET = 0f;
     private static final float Y_OFFSET = 1.75f;
@@ -66,15 +63,34 @@ public class CircleProgressBar extends ImageView {
     private int mMax;
     private int mDiameter;
     private int mInnerRadius;
-    private Paint mTextPaint;
+    private ProgressText mProgressText;
     private int mTextColor;
-    private int mTextSize;
     private boolean mIfDrawText;
+    /**
+     * 是否显示确定的进度，否则为旋转动画
+     */
+    private boolean mDeterminate;
     private boolean mShowArrow;
     public MaterialProgressDrawable mProgressDrawable;
-    private ShapeDrawable mBgCircle;
+    private Drawable mBgCircle;
+    /**
+     * API 21及以上是否使用elevation绘制阴影，关闭后可以减少RenderThread的阴影计算
+     */
+    private boolean mElevationShadowEnabled = true;
     private boolean mCircleBackgroundEnabled;
     private int[] mColors = new int[]{Color.BLACK};
+    /**
+     * 上次布局时按哪个直径创建了背景和进度尺寸，-1表示还没有
+     */
+    private int mLayoutDiameter = -1;
+    /**
+     * 背景配置（颜色、阴影、是否启用）变化，下次布局时重建背景
+     */
+    private boolean mBackgroundDirty = true;
+    /**
+     * 进度尺寸配置（线宽、箭头）变化，下次布局时重新设置
+     */
+    private boolean mSizeDirty = true;
 
     public CircleProgressBar(Context context) {
         super(context);
@@ -116,38 +132,40 @@ public class CircleProgressBar extends ImageView {
                 R.styleable.CircleProgressBar_arrow_width, -1);
         mArrowHeight = a.getDimensionPixelOffset(
                 R.styleable.CircleProgressBar_arrow_height, -1);
-        mTextSize = a.getDimensionPixelOffset(
+        final int textSize = a.getDimensionPixelOffset(
                 R.styleable.CircleProgressBar_progress_text_size, (int) (DEFAULT_TEXT_SIZE * density));
         mTextColor = a.getColor(
                 R.styleable.CircleProgressBar_progress_text_color, Color.BLACK);
+        mProgressText = new ProgressText(textSize, mTextColor);
 
         mShowArrow = a.getBoolean(R.styleable.CircleProgressBar_show_arrow, true);
         mCircleBackgroundEnabled = a.getBoolean(R.styleable.CircleProgressBar_enable_circle_background, true);
 
 
-        mProgress = a.getInt(R.styleable.CircleProgressBar_progress, 0);
+        mProgress = Math.max(0, a.getInt(R.styleable.CircleProgressBar_progress, 0));
         mMax = a.getInt(R.styleable.CircleProgressBar_max, 100);
+        updateProgressText();
         int textVisible = a.getInt(R.styleable.CircleProgressBar_progress_text_visibility, 1);
         if (textVisible != 1) {
             mIfDrawText = true;
         }
 
-        mTextPaint = new Paint();
-        mTextPaint.setStyle(Paint.Style.FILL);
-        mTextPaint.setColor(mTextColor);
-        mTextPaint.setTextSize(mTextSize);
-        mTextPaint.setAntiAlias(true);
         a.recycle();
-        mProgressDrawable = new MaterialProgressDrawable(getContext(), this);
+        mProgressDrawable = new MaterialProgressDrawable(getContext());
+        mProgressDrawable.setColorSchemeColors(mColors);
         super.setImageDrawable(mProgressDrawable);
     }
 
     public void setProgressBackGroundColor(int color) {
         this.mBackGroundColor = color;
+        mBackgroundDirty = true;
+        requestLayout();
     }
 
     public void setTextColor(int color) {
         this.mTextColor = color;
+        mProgressText.setColor(color);
+        invalidate();
     }
 
     private boolean elevationSupported() {
@@ -170,39 +188,82 @@ public class CircleProgressBar extends ImageView {
     public void setProgressStokeWidth(int mProgressStokeWidth) {
         final float density = getContext().getResources().getDisplayMetrics().density;
         this.mProgressStokeWidth = (int) (mProgressStokeWidth * density);
+        mSizeDirty = true;
+        requestLayout();
     }
 
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
+        NrlTrace.beginSection(NrlTrace.PROGRESS_LAYOUT);
+        try {
+            layoutProgress();
+        } finally {
+            NrlTrace.endSection();
+        }
+    }
+
+    private void layoutProgress() {
         final float density = getContext().getResources().getDisplayMetrics().density;
         mDiameter = Math.min(getMeasuredWidth(), getMeasuredHeight());
         if (mDiameter <= 0) {
             mDiameter = (int) density * DEFAULT_CIRCLE_DIAMETER;
         }
-        if (getBackground() == null && mCircleBackgroundEnabled) {
+        //每次拖动都可能触发布局，只有直径或配置真正变化时才重建
+        final boolean diameterChanged = mDiameter != mLayoutDiameter;
+        if (diameterChanged || mBackgroundDirty) {
+            mBackgroundDirty = false;
+            updateBackground(density);
+        }
+        if (diameterChanged || mSizeDirty) {
+            mSizeDirty = false;
+            updateProgressSize(diameterChanged);
+        }
+        mLayoutDiameter = mDiameter;
+    }
+
+    private void updateBackground(float density) {
+        //使用者设置了自己的背景时不覆盖
+        final Drawable background = getBackground();
+        if (background != null && background != mBgCircle) {
+            mProgressDrawable.setBackgroundColor(mBackGroundColor);
+            return;
+        }
+        if (!mCircleBackgroundEnabled) {
+            if (background != null) {
+                setBackgroundDrawable(null);
+                mBgCircle = null;
+            }
+        } else {
             final int shadowYOffset = (int) (density * Y_OFFSET);
             final int shadowXOffset = (int) (density * X_OFFSET);
             mShadowRadius = (int) (density * SHADOW_RADIUS);
 
             if (elevationSupported()) {
-                mBgCircle = new ShapeDrawable(new OvalShape());
-                ViewCompat.setElevation(this, SHADOW_ELEVATION * density);
+                ShapeDrawable circle = new ShapeDrawable(new OvalShape());
+                circle.getPaint().setColor(mBackGroundColor);
+                mBgCircle = circle;
+                ViewCompat.setElevation(this, mElevationShadowEnabled
+                        ? SHADOW_ELEVATION * density : 0);
             } else {
-                OvalShape oval = new OvalShadow(mShadowRadius, mDiameter - mShadowRadius * 2);
-                mBgCircle = new ShapeDrawable(oval);
-                ViewCompat.setLayerType(this, ViewCompat.LAYER_TYPE_SOFTWARE, mBgCircle.getPaint());
-                mBgCircle.getPaint().setShadowLayer(mShadowRadius, shadowXOffset, shadowYOffset,
-                        KEY_SHADOW_COLOR);
+                //圆形和阴影只绘制一次，所有进度条共用同一张位图，不再需要软件层
+                BitmapDrawable circle = new BitmapDrawable(getResources(), ShadowBitmapCache.get(
+                        mDiameter, mShadowRadius, shadowXOffset, shadowYOffset, mBackGroundColor));
+                circle.setGravity(Gravity.CENTER);
+                mBgCircle = circle;
                 final int padding = (int) mShadowRadius;
                 // set padding so the inner image sits correctly within the shadow.
                 setPadding(padding, padding, padding, padding);
             }
-            mBgCircle.getPaint().setColor(mBackGroundColor);
             setBackgroundDrawable(mBgCircle);
         }
         mProgressDrawable.setBackgroundColor(mBackGroundColor);
-        mProgressDrawable.setColorSchemeColors(mColors);
+    }
+
+    /**
+     * @param diameterChanged 直径变化时需要让ImageView按新的固有尺寸重新计算Drawable的位置
+     */
+    private void updateProgressSize(boolean diameterChanged) {
         mProgressDrawable.setSizeParameters(mDiameter, mDiameter,
                 mInnerRadius <= 0 ? (mDiameter - mProgressStokeWidth * 2) / 4 : mInnerRadius,
                 mProgressStokeWidth,
@@ -213,6 +274,9 @@ public class CircleProgressBar extends ImageView {
             mProgressDrawable.setArrowScale(1f);
             mProgressDrawable.showArrow(true);
         }
+        if (!diameterChanged) {
+            return;
+        }
         super.setImageDrawable(null);
         super.setImageDrawable(mProgressDrawable);
         mProgressDrawable.setAlpha(255);
@@ -225,10 +289,7 @@ public class CircleProgressBar extends ImageView {
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
         if (mIfDrawText) {
-            String text = String.format("%s%%", mProgress);
-            int x = getWidth() / 2 - text.length() * mTextSize / 4;
-            int y = getHeight() / 2 + mTextSize / 4;
-            canvas.drawText(text, x, y, mTextPaint);
+            mProgressText.draw(canvas, getWidth() / 2, getHeight() / 2);
         }
     }
 
@@ -244,6 +305,8 @@ public class CircleProgressBar extends ImageView {
 
     public void setShowArrow(boolean showArrow) {
         this.mShowArrow = showArrow;
+        mSizeDirty = true;
+        requestLayout();
     }
 
 
@@ -311,16 +374,33 @@ public class CircleProgressBar extends ImageView {
      * Update the background color of the mBgCircle image view.
      */
     public void setBackgroundColorResource(int colorRes) {
-        if (getBackground() instanceof ShapeDrawable) {
-            final Resources res = getResources();
-            ((ShapeDrawable) getBackground()).getPaint().setColor(res.getColor(colorRes));
-        }
+        setBackgroundColor(getResources().getColor(colorRes));
     }
 
     public void setBackgroundColor(int color) {
+        //保存颜色，之后重建背景时继续使用
+        mBackGroundColor = color;
+        if (mProgressDrawable != null) {
+            mProgressDrawable.setBackgroundColor(color);
+        }
         if (getBackground() instanceof ShapeDrawable) {
-            final Resources res = getResources();
             ((ShapeDrawable) getBackground()).getPaint().setColor(color);
+            invalidate();
+        } else if (getBackground() != null && getBackground() == mBgCircle) {
+            //缓存的位图不能修改，按新颜色取另一张
+            mBackgroundDirty = true;
+            requestLayout();
+        }
+    }
+
+    /**
+     * API 21及以上是否绘制elevation阴影
+     */
+    public void setElevationShadowEnabled(boolean enabled) {
+        if (this.mElevationShadowEnabled != enabled) {
+            this.mElevationShadowEnabled = enabled;
+            mBackgroundDirty = true;
+            requestLayout();
         }
     }
 
@@ -330,6 +410,7 @@ public class CircleProgressBar extends ImageView {
 
     public void setShowProgressText(boolean mIfDrawText) {
         this.mIfDrawText = mIfDrawText;
+        invalidate();
     }
 
     public int getMax() {
@@ -346,10 +427,37 @@ public class CircleProgressBar extends ImageView {
 
     public void setProgress(int progress) {
         if (getMax() > 0) {
-            mProgress = progress;
+            mProgress = Math.max(0, Math.min(progress, mMax));
+            updateProgressText();
+            if (mDeterminate) {
+                mProgressDrawable.setDeterminateProgress(mProgress / (float) mMax);
+            }
         }
         invalidate();
-        Log.i("cjj_log", "progress------->>>>" + progress);
+    }
+
+    /**
+     * 设置是否显示确定的进度。确定进度时停止旋转，圆弧长度和文字跟随{@link #setProgress(int)}
+     */
+    public void setDeterminate(boolean determinate) {
+        if (mDeterminate == determinate) {
+            return;
+        }
+        mDeterminate = determinate;
+        if (determinate) {
+            mProgressDrawable.setDeterminateProgress(mMax > 0 ? mProgress / (float) mMax : 0);
+        } else {
+            mProgressDrawable.stop();
+        }
+        invalidate();
+    }
+
+    public boolean isDeterminate() {
+        return mDeterminate;
+    }
+
+    private void updateProgressText() {
+        mProgressText.setProgress(mProgress);
     }
 
 
@@ -358,7 +466,11 @@ public class CircleProgressBar extends ImageView {
     }
 
     public void setCircleBackgroundEnabled(boolean enableCircleBackground) {
-        this.mCircleBackgroundEnabled = enableCircleBackground;
+        if (this.mCircleBackgroundEnabled != enableCircleBackground) {
+            this.mCircleBackgroundEnabled = enableCircleBackground;
+            mBackgroundDirty = true;
+            requestLayout();
+        }
     }
 
     @Override
@@ -369,62 +481,39 @@ public class CircleProgressBar extends ImageView {
     @Override
     public void setVisibility(int visibility) {
         super.setVisibility(visibility);
-//        if (mProgressDrawable != null) {
-//            mProgressDrawable.setVisible(visibility == VISIBLE, false);
-//            if (visibility != VISIBLE) {
-//                mProgressDrawable.stop();
-//            } else {
-//                if (mProgressDrawable.isRunning()) {
-//                    mProgressDrawable.stop();
-//                }
-//                mProgressDrawable.start();
-//            }
-//        }
+        updateProgressVisible();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        //父视图（如收起的加载视图）隐藏时也暂停动画
+        updateProgressVisible();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateProgressVisible();
     }
 
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        if (mProgressDrawable != null) {
-            mProgressDrawable.stop();
-            mProgressDrawable.setVisible(getVisibility() == VISIBLE, false);
-        }
+        updateProgressVisible();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         if (mProgressDrawable != null) {
-            mProgressDrawable.stop();
-            mProgressDrawable.setVisible(false, false);
+            mProgressDrawable.onHostDetached();
         }
     }
 
-    private class OvalShadow extends OvalShape {
-        private RadialGradient mRadialGradient;
-        private int mShadowRadius;
-        private Paint mShadowPaint;
-        private int mCircleDiameter;
-
-        public OvalShadow(int shadowRadius, int circleDiameter) {
-            super();
-            mShadowPaint = new Paint();
-            mShadowRadius = shadowRadius;
-            mCircleDiameter = circleDiameter;
-            mRadialGradient = new RadialGradient(mCircleDiameter / 2, mCircleDiameter / 2,
-                    mShadowRadius, new int[]{
-                    FILL_SHADOW_COLOR, Color.TRANSPARENT
-            }, null, Shader.TileMode.CLAMP);
-            mShadowPaint.setShader(mRadialGradient);
-        }
-
-        @Override
-        public void draw(Canvas canvas, Paint paint) {
-            final int viewWidth = CircleProgressBar.this.getWidth();
-            final int viewHeight = CircleProgressBar.this.getHeight();
-            canvas.drawCircle(viewWidth / 2, viewHeight / 2, (mCircleDiameter / 2 + mShadowRadius),
-                    mShadowPaint);
-            canvas.drawCircle(viewWidth / 2, viewHeight / 2, (mCircleDiameter / 2), paint);
+    private void updateProgressVisible() {
+        if (mProgressDrawable != null) {
+            mProgressDrawable.updateVisible(this);
         }
     }
 
@@ -432,7 +521,10 @@ public class CircleProgressBar extends ImageView {
      * 开始动画
      */
     public void start() {
-        mProgressDrawable.start();
+        //显示确定进度时不旋转
+        if (!mDeterminate) {
+            mProgressDrawable.start();
+        }
     }
 
     /**
@@ -452,4 +544,11 @@ public class CircleProgressBar extends ImageView {
     public void setProgressRotation(float rotation) {
         mProgressDrawable.setProgressRotation(rotation);
     }
+
+    /**
+     * 使用预先绘制的圆弧图集绘制进度
+     */
+    public void setFrameAtlasEnabled(boolean enabled) {
+        mProgressDrawable.setFrameAtlasEnabled(enabled);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.xlf.nrl;
+
+/**
+ * 默认加载视图{@link LoadView}和{@link FlatLoadView}共有的设置，NsRefreshLayout通过它创建和修改两种视图
+ */
+interface DefaultLoadIndicator extends NsRefreshIndicator {
+
+    /**
+     * 设置各状态的文字，文字会预先排版，之后切换状态不再分配内存或重新布局
+     */
+    void setLoadTexts(String pullText, String releaseText, String loadingText);
+
+    /**
+     * 设置动画起始位置
+     */
+    void setStartEndTrim(float startAngle, float endAngle);
+
+    void setBackgroundColor(int color);
+
+    void setLoadTextColor(int color);
+
+    void setProgressBgColor(int color);
+
+    void setProgressColor(int color);
+
+    /**
+     * 进度条使用预先绘制的圆弧图集，减少低端设备上的矢量绘制
+     */
+    void setFrameAtlasEnabled(boolean enabled);
+
+    /**
+     * API 21及以上进度条是否绘制阴影，更低版本总是绘制
+     */
+    void setElevationShadowEnabled(boolean enabled);
+}
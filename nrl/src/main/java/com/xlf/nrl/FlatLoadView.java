@@ -0,0 +1,336 @@
+package com.xlf.nrl;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * 只有一层的加载视图，与{@link LoadView}外观相同。
+ * 进度条Drawable和预先排版的文字都在onDraw中直接绘制，不再有LinearLayout、CircleProgressBar和文字视图三层结构，
+ * 测量只按进度条直径和文字的最大尺寸计算；拖动、切换文字和动画都只重绘。
+ * 进度条的圆形背景和阴影使用共用的位图，不依赖elevation。
+ */
+public class FlatLoadView extends View implements DefaultLoadIndicator {
+
+    private static final int DEFAULT_CIRCLE_SIZE = 42;
+    private static final int CIRCLE_MARGIN = 10;
+    private static final int STROKE_WIDTH = 3;
+    private static final int PROGRESS_TEXT_SIZE = 9;
+    private static final float SHADOW_RADIUS = 3.5f;
+    private static final float Y_OFFSET = 1.75f;
+
+    private final MaterialProgressDrawable mProgressDrawable;
+    /**
+     * 进度条直径、与文字的间距和阴影尺寸（px）
+     */
+    private final int mCircleDiameter;
+    private final int mCircleMargin;
+    private final int mShadowRadius;
+    private final int mShadowYOffset;
+    private final Paint mCirclePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private int mCircleColor = CircleProgressBar.DEFAULT_CIRCLE_BG_LIGHT;
+    private boolean mElevationShadowEnabled = true;
+    /**
+     * 带阴影的圆形背景，关闭阴影时为null，直接画圆
+     */
+    private Bitmap mShadowBitmap;
+
+    private final LoadLabels mLabels;
+    private final ProgressText mProgressText;
+    /**
+     * 是否显示确定的进度，否则为旋转动画
+     */
+    private boolean mDeterminate;
+
+    /**
+     * 布局时计算的进度条和文字位置
+     */
+    private int mCircleLeft;
+    private int mCircleTop;
+    private int mTextLeft;
+
+    public FlatLoadView(Context context) {
+        this(context, null);
+    }
+
+    public FlatLoadView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public FlatLoadView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        final float density = context.getResources().getDisplayMetrics().density;
+        mCircleDiameter = (int) (DEFAULT_CIRCLE_SIZE * density);
+        mCircleMargin = (int) (CIRCLE_MARGIN * density);
+        mShadowRadius = (int) (SHADOW_RADIUS * density);
+        mShadowYOffset = (int) (Y_OFFSET * density);
+        mLabels = new LoadLabels(context);
+        mProgressText = new ProgressText((int) (PROGRESS_TEXT_SIZE * density), Color.BLACK);
+
+        final int strokeWidth = (int) (STROKE_WIDTH * density);
+        mProgressDrawable = new MaterialProgressDrawable(context);
+        mProgressDrawable.setSizeParameters(mCircleDiameter, mCircleDiameter,
+                (mCircleDiameter - strokeWidth * 2) / 4, strokeWidth, strokeWidth * 4,
+                strokeWidth * 2);
+        mProgressDrawable.showArrowOnFirstStart(true);
+        mProgressDrawable.setArrowScale(1f);
+        mProgressDrawable.showArrow(true);
+        mProgressDrawable.setAlpha(255);
+        mProgressDrawable.setBackgroundColor(mCircleColor);
+        mProgressDrawable.setCallback(this);
+        mCirclePaint.setColor(mCircleColor);
+        updateCircleBackground();
+    }
+
+    /**
+     * 设置各状态的文字，文字会预先排版，之后切换状态不再分配内存或重新布局
+     */
+    @Override
+    public void setLoadTexts(String pullText, String releaseText, String loadingText) {
+        mLabels.setText(STATE_PULL, pullText);
+        mLabels.setText(STATE_RELEASE, releaseText);
+        mLabels.setText(STATE_LOADING, loadingText);
+        updateTextBounds();
+    }
+
+    /**
+     * 设置当前状态的文字
+     */
+    public void setLoadText(String loadText) {
+        mLabels.setText(mLabels.getLabel(), loadText);
+        updateTextBounds();
+    }
+
+    private void updateTextBounds() {
+        if (mLabels.updateBounds()) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    /**
+     * 切换显示的文字，不会触发重新布局
+     *
+     * @param label {@link LoadView#LABEL_PULL}、{@link LoadView#LABEL_RELEASE}或{@link LoadView#LABEL_LOADING}
+     */
+    public void showLabel(int label) {
+        if (mLabels.show(label)) {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void setLoadTextColor(int color) {
+        if (mLabels.setTextColor(color)) {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void setProgressBgColor(int color) {
+        if (mCircleColor != color) {
+            mCircleColor = color;
+            mCirclePaint.setColor(color);
+            mProgressDrawable.setBackgroundColor(color);
+            updateCircleBackground();
+        }
+    }
+
+    @Override
+    public void setProgressColor(int color) {
+        mProgressDrawable.setColorSchemeColors(color);
+    }
+
+    /**
+     * 进度条使用预先绘制的圆弧图集，减少低端设备上的矢量绘制
+     */
+    @Override
+    public void setFrameAtlasEnabled(boolean enabled) {
+        mProgressDrawable.setFrameAtlasEnabled(enabled);
+    }
+
+    /**
+     * API 21及以上是否绘制进度条的阴影，关闭后只画圆形背景；与{@link LoadView}一致，更低版本总是绘制
+     */
+    @Override
+    public void setElevationShadowEnabled(boolean enabled) {
+        if (mElevationShadowEnabled != enabled) {
+            mElevationShadowEnabled = enabled;
+            updateCircleBackground();
+        }
+    }
+
+    private void updateCircleBackground() {
+        final boolean shadow = mElevationShadowEnabled
+                || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP;
+        mShadowBitmap = shadow ? ShadowBitmapCache.get(
+                mCircleDiameter + mShadowRadius * 2, mShadowRadius, 0, mShadowYOffset,
+                mCircleColor) : null;
+        invalidate();
+    }
+
+    /**
+     * 设置动画起始位置
+     */
+    @Override
+    public void setStartEndTrim(float startAngle, float endAngle) {
+        mProgressDrawable.setStartEndTrim(startAngle, endAngle);
+    }
+
+    public void setProgressRotation(float rotation) {
+        mProgressDrawable.setProgressRotation(rotation);
+    }
+
+    @Override
+    public View getView() {
+        return this;
+    }
+
+    @Override
+    public void onPull(float fraction) {
+        setProgressRotation(fraction);
+    }
+
+    @Override
+    public void onStateChanged(int state) {
+        showLabel(state);
+    }
+
+    /**
+     * 开始动画
+     */
+    @Override
+    public void start() {
+        //显示确定进度时不旋转
+        if (!mDeterminate) {
+            mProgressDrawable.start();
+        }
+    }
+
+    /**
+     * 停止动画
+     */
+    @Override
+    public void stop() {
+        mProgressDrawable.stop();
+    }
+
+    /**
+     * 显示确定的进度和百分比文字，停止旋转动画
+     *
+     * @param progress 进度，[0..100]
+     */
+    @Override
+    public void setProgress(int progress) {
+        progress = Math.max(0, Math.min(progress, 100));
+        if (!mDeterminate) {
+            mDeterminate = true;
+            mProgressDrawable.stop();
+        }
+        mProgressDrawable.setDeterminateProgress(progress / 100f);
+        mProgressText.setProgress(progress);
+        invalidate();
+    }
+
+    /**
+     * 恢复为不确定进度的旋转动画
+     */
+    @Override
+    public void clearProgress() {
+        if (mDeterminate) {
+            mDeterminate = false;
+            mProgressDrawable.stop();
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getPaddingLeft() + getPaddingRight() + mCircleDiameter;
+        if (mLabels.getMaxWidth() > 0) {
+            width += mCircleMargin + mLabels.getMaxWidth();
+        }
+        int height = getPaddingTop() + getPaddingBottom()
+                + Math.max(mCircleDiameter, mLabels.getMaxHeight());
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        //进度条和文字作为一个整体居中，与LoadView的Gravity.CENTER一致
+        int contentWidth = mCircleDiameter;
+        if (mLabels.getMaxWidth() > 0) {
+            contentWidth += mCircleMargin + mLabels.getMaxWidth();
+        }
+        final int innerWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+        final int innerHeight = getHeight() - getPaddingTop() - getPaddingBottom();
+        mCircleLeft = getPaddingLeft() + (innerWidth - contentWidth) / 2;
+        mCircleTop = getPaddingTop() + (innerHeight - mCircleDiameter) / 2;
+        mTextLeft = mCircleLeft + mCircleDiameter + mCircleMargin;
+        mProgressDrawable.setBounds(mCircleLeft, mCircleTop, mCircleLeft + mCircleDiameter,
+                mCircleTop + mCircleDiameter);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mShadowBitmap != null) {
+            canvas.drawBitmap(mShadowBitmap, mCircleLeft - mShadowRadius,
+                    mCircleTop - mShadowRadius, null);
+        } else {
+            final float radius = mCircleDiameter / 2f;
+            canvas.drawCircle(mCircleLeft + radius, mCircleTop + radius, radius, mCirclePaint);
+        }
+        mProgressDrawable.draw(canvas);
+        if (mDeterminate) {
+            mProgressText.draw(canvas, mCircleLeft + mCircleDiameter / 2,
+                    mCircleTop + mCircleDiameter / 2);
+        }
+        mLabels.draw(canvas, mTextLeft, getPaddingTop(),
+                getHeight() - getPaddingTop() - getPaddingBottom());
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == mProgressDrawable || super.verifyDrawable(who);
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        //自己或父视图隐藏时暂停动画
+        updateProgressVisible();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateProgressVisible();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateProgressVisible();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mProgressDrawable.onHostDetached();
+    }
+
+    private void updateProgressVisible() {
+        //父类构造方法中也可能回调，此时还没有创建Drawable
+        if (mProgressDrawable != null) {
+            mProgressDrawable.updateVisible(this);
+        }
+    }
+}
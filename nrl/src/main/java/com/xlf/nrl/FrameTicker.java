@@ -0,0 +1,105 @@
+package com.xlf.nrl;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.v4.view.ViewCompat;
+import android.view.Choreographer;
+import android.view.View;
+
+/**
+ * 在下一帧执行一次回调，多次请求只执行一次。
+ * API 16及以上使用Choreographer并提供帧时间，以下使用postOnAnimation并以当前时间代替。
+ */
+class FrameTicker {
+
+    interface Callback {
+        /**
+         * @param frameTimeNanos 当前帧的时间，单位纳秒
+         */
+        void doFrame(long frameTimeNanos);
+    }
+
+    private final View mView;
+    private final Callback mCallback;
+    /**
+     * Choreographer.FrameCallback，用Object保存以免低版本加载失败
+     */
+    private Object mFrameCallback;
+    private Runnable mFallbackRunnable;
+    private boolean mScheduled;
+
+    FrameTicker(View view, Callback callback) {
+        mView = view;
+        mCallback = callback;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mFrameCallback = ChoreographerImpl.createFrameCallback(this);
+        } else {
+            mFallbackRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    onFrame(System.nanoTime());
+                }
+            };
+        }
+    }
+
+    /**
+     * 请求在下一帧回调
+     */
+    void schedule() {
+        if (mScheduled) {
+            return;
+        }
+        mScheduled = true;
+        if (mFrameCallback != null) {
+            ChoreographerImpl.postFrameCallback(mFrameCallback);
+        } else {
+            ViewCompat.postOnAnimation(mView, mFallbackRunnable);
+        }
+    }
+
+    /**
+     * 取消还没有执行的回调
+     */
+    void cancel() {
+        if (!mScheduled) {
+            return;
+        }
+        mScheduled = false;
+        if (mFrameCallback != null) {
+            ChoreographerImpl.removeFrameCallback(mFrameCallback);
+        } else {
+            mView.removeCallbacks(mFallbackRunnable);
+        }
+    }
+
+    boolean isScheduled() {
+        return mScheduled;
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        mScheduled = false;
+        mCallback.doFrame(frameTimeNanos);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerImpl {
+
+        static Object createFrameCallback(final FrameTicker ticker) {
+            return new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    ticker.onFrame(frameTimeNanos);
+                }
+            };
+        }
+
+        static void postFrameCallback(Object callback) {
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) callback);
+        }
+
+        static void removeFrameCallback(Object callback) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) callback);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.xlf.nrl;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.view.View;
+
+/**
+ * 加载视图中的文字，所有状态的文字在设置时预先排版，切换状态时只重绘不重新布局
+ */
+class LoadLabelView extends View {
+
+    private final LoadLabels mLabels;
+
+    public LoadLabelView(Context context) {
+        super(context);
+        mLabels = new LoadLabels(context);
+    }
+
+    /**
+     * 设置某个状态的文字并预先排版
+     */
+    public void setText(int label, CharSequence text) {
+        mLabels.setText(label, text);
+        if (mLabels.updateBounds()) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    public CharSequence getText(int label) {
+        return mLabels.getText(label);
+    }
+
+    public void setTextColor(int color) {
+        if (mLabels.setTextColor(color)) {
+            invalidate();
+        }
+    }
+
+    /**
+     * 切换显示的文字，不会触发重新布局
+     */
+    public void showLabel(int label) {
+        if (mLabels.show(label)) {
+            invalidate();
+        }
+    }
+
+    public int getLabel() {
+        return mLabels.getLabel();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = mLabels.getMaxWidth() + getPaddingLeft() + getPaddingRight();
+        int height = mLabels.getMaxHeight() + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        mLabels.draw(canvas, getPaddingLeft(), getPaddingTop(),
+                getHeight() - getPaddingTop() - getPaddingBottom());
+    }
+}
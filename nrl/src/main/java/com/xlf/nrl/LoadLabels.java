@@ -0,0 +1,124 @@
+package com.xlf.nrl;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.TypedValue;
+
+/**
+ * 加载视图各状态的文字，设置时预先排版，切换状态时只需重绘。
+ * {@link LoadLabelView}和{@link FlatLoadView}共用
+ */
+class LoadLabels {
+
+    private static final int DEFAULT_TEXT_SIZE_SP = 14;
+
+    private final TextPaint mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final CharSequence[] mTexts = new CharSequence[LoadView.LABEL_COUNT];
+    private final StaticLayout[] mLayouts = new StaticLayout[LoadView.LABEL_COUNT];
+    /**
+     * 当前显示的文字状态
+     */
+    private int mLabel = LoadView.LABEL_PULL;
+    /**
+     * 所有文字排版后的最大宽高，视图尺寸按最大值测量，切换文字时尺寸不变
+     */
+    private int mMaxWidth;
+    private int mMaxHeight;
+
+    LoadLabels(Context context) {
+        mTextPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP,
+                DEFAULT_TEXT_SIZE_SP, context.getResources().getDisplayMetrics()));
+    }
+
+    /**
+     * 设置某个状态的文字并预先排版，设置完后调用{@link #updateBounds()}
+     */
+    void setText(int label, CharSequence text) {
+        mTexts[label] = text;
+        if (text == null) {
+            mLayouts[label] = null;
+        } else {
+            int width = (int) Math.ceil(Layout.getDesiredWidth(text, mTextPaint));
+            mLayouts[label] = new StaticLayout(text, mTextPaint, width,
+                    Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+        }
+    }
+
+    CharSequence getText(int label) {
+        return mTexts[label];
+    }
+
+    /**
+     * @return 颜色是否改变
+     */
+    boolean setTextColor(int color) {
+        if (mTextPaint.getColor() == color) {
+            return false;
+        }
+        mTextPaint.setColor(color);
+        return true;
+    }
+
+    /**
+     * @return 显示的文字是否改变
+     */
+    boolean show(int label) {
+        if (mLabel == label) {
+            return false;
+        }
+        mLabel = label;
+        return true;
+    }
+
+    int getLabel() {
+        return mLabel;
+    }
+
+    /**
+     * 重新计算所有文字的最大宽高
+     *
+     * @return 最大宽高是否改变，改变时需要重新布局
+     */
+    boolean updateBounds() {
+        int maxWidth = 0;
+        int maxHeight = 0;
+        for (StaticLayout layout : mLayouts) {
+            if (layout != null) {
+                maxWidth = Math.max(maxWidth, layout.getWidth());
+                maxHeight = Math.max(maxHeight, layout.getHeight());
+            }
+        }
+        if (maxWidth == mMaxWidth && maxHeight == mMaxHeight) {
+            return false;
+        }
+        mMaxWidth = maxWidth;
+        mMaxHeight = maxHeight;
+        return true;
+    }
+
+    int getMaxWidth() {
+        return mMaxWidth;
+    }
+
+    int getMaxHeight() {
+        return mMaxHeight;
+    }
+
+    /**
+     * 绘制当前状态的文字，在top开始高为height的区域内垂直居中
+     */
+    void draw(Canvas canvas, int left, int top, int height) {
+        StaticLayout layout = mLayouts[mLabel];
+        if (layout == null) {
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.translate(left, top + (height - layout.getHeight()) / 2);
+        layout.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+}
@@ -5,19 +5,33 @@ import android.content.Context;
 import android.os.Build;
 import android.util.AttributeSet;
 import android.view.Gravity;
+import android.view.View;
 import android.widget.LinearLayout;
-import android.widget.TextView;
 
 /**
  * Created by xiaolifan on 2015/12/21.
  * QQ: 1147904198
  * Email: xiao_lifan@163.com
  */
-public class LoadView extends LinearLayout {
+public class LoadView extends LinearLayout implements DefaultLoadIndicator {
+
+    /**
+     * 提示拖动的文字
+     */
+    public static final int LABEL_PULL = STATE_PULL;
+    /**
+     * 提示松手的文字
+     */
+    public static final int LABEL_RELEASE = STATE_RELEASE;
+    /**
+     * 正在刷新或加载的文字
+     */
+    public static final int LABEL_LOADING = STATE_LOADING;
+    static final int LABEL_COUNT = 3;
 
     private static final int DEFAULT_CIRCLE_SIZE = 42;
     private CircleProgressBar circleProgressBar;
-    private TextView tvLoad;
+    private LoadLabelView tvLoad;
 
     public LoadView(Context context) {
         super(context);
@@ -52,29 +66,94 @@ public class LoadView extends LinearLayout {
                 (int) NrlUtils.dipToPx(getContext(), DEFAULT_CIRCLE_SIZE));
         lp.rightMargin = (int) NrlUtils.dipToPx(getContext(), 10);
         addView(circleProgressBar, lp);
-        tvLoad = new TextView(getContext());
+        tvLoad = new LoadLabelView(getContext());
         addView(tvLoad);
     }
 
+    /**
+     * 设置各状态的文字，文字会预先排版，之后切换状态不再分配内存或重新布局
+     */
+    @Override
+    public void setLoadTexts(String pullText, String releaseText, String loadingText) {
+        tvLoad.setText(LABEL_PULL, pullText);
+        tvLoad.setText(LABEL_RELEASE, releaseText);
+        tvLoad.setText(LABEL_LOADING, loadingText);
+    }
+
+    /**
+     * 设置当前状态的文字
+     */
     public void setLoadText(String loadtText) {
-        this.tvLoad.setText(loadtText);
+        tvLoad.setText(tvLoad.getLabel(), loadtText);
+    }
+
+    /**
+     * 切换显示的文字
+     *
+     * @param label {@link #LABEL_PULL}、{@link #LABEL_RELEASE}或{@link #LABEL_LOADING}
+     */
+    public void showLabel(int label) {
+        tvLoad.showLabel(label);
     }
 
+    @Override
     public void setLoadTextColor(int color) {
         tvLoad.setTextColor(color);
     }
 
+    @Override
     public void setProgressBgColor(int color) {
         circleProgressBar.setBackgroundColor(color);
     }
 
+    @Override
     public void setProgressColor(int color) {
         circleProgressBar.setColorSchemeColors(color);
     }
 
+    /**
+     * 进度条使用预先绘制的圆弧图集，减少低端设备上的矢量绘制
+     */
+    @Override
+    public void setFrameAtlasEnabled(boolean enabled) {
+        circleProgressBar.setFrameAtlasEnabled(enabled);
+    }
+
+    /**
+     * API 21及以上进度条是否绘制elevation阴影
+     */
+    @Override
+    public void setElevationShadowEnabled(boolean enabled) {
+        circleProgressBar.setElevationShadowEnabled(enabled);
+    }
+
+    /**
+     * 显示确定的进度和百分比文字，停止旋转动画
+     *
+     * @param progress 进度，[0..100]
+     */
+    @Override
+    public void setProgress(int progress) {
+        circleProgressBar.setDeterminate(true);
+        circleProgressBar.setShowProgressText(true);
+        circleProgressBar.setProgress(progress);
+    }
+
+    /**
+     * 恢复为不确定进度的旋转动画
+     */
+    @Override
+    public void clearProgress() {
+        if (circleProgressBar.isDeterminate()) {
+            circleProgressBar.setShowProgressText(false);
+            circleProgressBar.setDeterminate(false);
+        }
+    }
+
     /**
      * 开始动画
      */
+    @Override
     public void start() {
         circleProgressBar.start();
     }
@@ -82,6 +161,7 @@ public class LoadView extends LinearLayout {
     /**
      * 设置动画起始位置
      */
+    @Override
     public void setStartEndTrim(float startAngle, float endAngle) {
         circleProgressBar.setStartEndTrim(startAngle, endAngle);
     }
@@ -89,6 +169,7 @@ public class LoadView extends LinearLayout {
     /**
      * 停止动画
      */
+    @Override
     public void stop() {
         circleProgressBar.stop();
     }
@@ -96,4 +177,19 @@ public class LoadView extends LinearLayout {
     public void setProgressRotation(float rotation) {
         circleProgressBar.setProgressRotation(rotation);
     }
+
+    @Override
+    public View getView() {
+        return this;
+    }
+
+    @Override
+    public void onPull(float fraction) {
+        setProgressRotation(fraction);
+    }
+
+    @Override
+    public void onStateChanged(int state) {
+        showLabel(state);
+    }
 }
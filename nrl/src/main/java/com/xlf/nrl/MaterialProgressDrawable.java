@@ -21,6 +21,7 @@ import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Paint.Style;
 import android.graphics.Path;
@@ -29,13 +30,12 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.util.DisplayMetrics;
 import android.view.View;
 import android.view.animation.AccelerateDecelerateInterpolator;
 import android.view.animation.Animation;
 import android.view.animation.Interpolator;
-import android.view.animation.LinearInterpolator;
-import android.view.animation.Transformation;
 
 import java.util.ArrayList;
 
@@ -44,9 +44,6 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
     public static final int LARGE = 0;
     // Maps to ProgressBar default style
     public static final int DEFAULT = 1;
-    private static final Interpolator LINEAR_INTERPOLATOR = new LinearInterpolator();
-    private static final Interpolator END_CURVE_INTERPOLATOR = new EndCurveInterpolator();
-    private static final Interpolator START_CURVE_INTERPOLATOR = new StartCurveInterpolator();
     private static final Interpolator EASE_INTERPOLATOR = new AccelerateDecelerateInterpolator();
     // Maps to ProgressBar default style
     private static final int CIRCLE_DIAMETER = 40;
@@ -75,7 +72,6 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
      */
     static final int ARROW_WIDTH_LARGE = 12;
     static final int ARROW_HEIGHT_LARGE = 6;
-    private static final float MAX_PROGRESS_ARC = .8f;
     private final int[] COLORS = new int[]{
             Color.BLACK
     };
@@ -109,22 +105,50 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
      */
     private float mRotation;
     private Resources mResources;
-    private View mAnimExcutor;
-    private Animation mAnimation;
     private float mRotationCount;
+    /**
+     * start()之后、stop()之前为true，不可见时也保持
+     */
+    private boolean mStarted;
+    /**
+     * 是否已经请求了下一帧
+     */
+    private boolean mTicking;
+    /**
+     * 上一帧的时间，-1表示刚开始或刚恢复，下一帧不推进进度
+     */
+    private long mLastFrameTime = -1;
+    /**
+     * 当前这一圈已经播放的时间和总时长
+     */
+    private long mCyclePlayTime;
+    private long mCycleDuration = ANIMATION_DURATION;
+    /**
+     * 收起手势留下的圆弧时要转到的位置，开始时计算一次
+     */
+    private float mFinishTargetRotation;
+    /**
+     * 每帧计算结果，重复使用
+     */
+    private final float[] mFrame = new float[SpinnerMath.FRAME_SIZE];
     private double mWidth;
     private double mHeight;
     private boolean mShowArrowOnFirstStart = false;
 
-    public MaterialProgressDrawable(Context context, View animExcutor) {
-        mAnimExcutor = animExcutor;
+    public MaterialProgressDrawable(Context context) {
         mResources = context.getResources();
 
         mRing = new Ring(mCallback);
         mRing.setColors(COLORS);
 
         updateSizes(DEFAULT);
-        setupAnimators();
+    }
+
+    /**
+     * 动画由Drawable自己驱动，不再需要执行动画的View
+     */
+    public MaterialProgressDrawable(Context context, View animExcutor) {
+        this(context);
     }
 
     public void setSizeParameters(double progressCircleWidth, double progressCircleHeight,
@@ -222,6 +246,15 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
 
     @Override
     public void draw(Canvas c) {
+        NrlTrace.beginSection(NrlTrace.PROGRESS_DRAW);
+        try {
+            drawRing(c);
+        } finally {
+            NrlTrace.endSection();
+        }
+    }
+
+    private void drawRing(Canvas c) {
         final Rect bounds = getBounds();
         final int saveCount = c.save();
         c.rotate(mRotation, bounds.exactCenterX(), bounds.exactCenterY());
@@ -229,6 +262,43 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
         c.restoreToCount(saveCount);
     }
 
+    /**
+     * 使用预先绘制的圆弧图集代替矢量绘制，适合低端设备；超过内存上限时仍然矢量绘制
+     */
+    public void setFrameAtlasEnabled(boolean enabled) {
+        mRing.setFrameAtlasEnabled(enabled);
+        invalidateSelf();
+    }
+
+    /**
+     * 释放占用的圆弧图集，下次绘制时按需重新获取
+     */
+    public void releaseFrameAtlas() {
+        mRing.releaseAtlas();
+    }
+
+    /**
+     * 动画只在宿主视图真正显示时运行，不可见时暂停请求帧
+     */
+    void updateVisible(View host) {
+        setVisible(host.getWindowVisibility() == View.VISIBLE && host.isShown(), false);
+    }
+
+    /**
+     * 宿主视图离开窗口时只暂停动画，重新添加到窗口后从暂停的位置继续；同时释放圆弧图集
+     */
+    void onHostDetached() {
+        setVisible(false, false);
+        releaseFrameAtlas();
+    }
+
+    /**
+     * 设置所有圆弧图集共用的内存上限（字节），默认1MB
+     */
+    public static void setFrameAtlasMemoryCap(int bytes) {
+        SpinnerFrameAtlas.setMemoryCap(bytes);
+    }
+
     public int getAlpha() {
         return mRing.getAlpha();
     }
@@ -261,127 +331,159 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
 
     @Override
     public boolean isRunning() {
-        return  !this.mAnimation.hasEnded();
+        return mStarted;
     }
 
     @Override
     public void start() {
-        mAnimation.reset();
         mRing.storeOriginals();
         mRing.setShowArrow(mShowArrowOnFirstStart);
 
         // Already showing some part of the ring
         if (mRing.getEndTrim() != mRing.getStartTrim()) {
             mFinishing = true;
-            mAnimation.setDuration(ANIMATION_DURATION / 2);
-            mAnimExcutor.startAnimation(mAnimation);
+            mFinishTargetRotation = SpinnerMath.finishTargetRotation(mRing.getStartingRotation());
+            mCycleDuration = ANIMATION_DURATION / 2;
         } else {
+            mFinishing = false;
             mRing.setColorIndex(0);
             mRing.resetOriginals();
-            mAnimation.setDuration(ANIMATION_DURATION);
-            mAnimExcutor.startAnimation(mAnimation);
+            mCycleDuration = ANIMATION_DURATION;
         }
+        mRotationCount = 0;
+        mCyclePlayTime = 0;
+        mLastFrameTime = -1;
+        mStarted = true;
+        updateTicking();
     }
 
     @Override
     public void stop() {
-        mAnimExcutor.clearAnimation();
+        mStarted = false;
+        updateTicking();
         setRotation(0);
         mRing.setShowArrow(false);
         mRing.setColorIndex(0);
         mRing.resetOriginals();
     }
 
+    /**
+     * 显示确定的进度：停止旋转动画，从12点钟方向顺时针画出对应比例的圆弧
+     *
+     * @param fraction 进度比例，[0..1]
+     */
+    public void setDeterminateProgress(float fraction) {
+        if (mStarted) {
+            mStarted = false;
+            updateTicking();
+        }
+        mFinishing = false;
+        mRing.setShowArrow(false);
+        mRing.setColorIndex(0);
+        mRing.setRotation(0.75f);
+        mRing.setStartTrim(0);
+        mRing.setEndTrim(Math.max(0, Math.min(fraction, 1)));
+        setRotation(0);
+    }
+
     private void applyFinishTranslation(float interpolatedTime, Ring ring) {
         // shrink back down and complete a full rotation before
         // starting other circles
         // Rotation goes between [0..1].
-        float targetRotation = (float) (Math.floor(ring.getStartingRotation() / MAX_PROGRESS_ARC)
-                + 1f);
-        final float startTrim = ring.getStartingStartTrim()
-                + (ring.getStartingEndTrim() - ring.getStartingStartTrim()) * interpolatedTime;
-        ring.setStartTrim(startTrim);
-        final float rotation = ring.getStartingRotation()
-                + ((targetRotation - ring.getStartingRotation()) * interpolatedTime);
-        ring.setRotation(rotation);
+        final float[] frame = mFrame;
+        SpinnerMath.finishFrame(interpolatedTime, ring.getStartingStartTrim(),
+                ring.getStartingEndTrim(), ring.getStartingRotation(), mFinishTargetRotation, frame);
+        ring.setStartTrim(frame[SpinnerMath.START_TRIM]);
+        ring.setRotation(frame[SpinnerMath.ROTATION]);
     }
 
-    private void setupAnimators() {
-        final Ring ring = mRing;
-        final Animation animation = new Animation() {
-            @Override
-            public void applyTransformation(float interpolatedTime, Transformation t) {
-                if (mFinishing) {
-                    applyFinishTranslation(interpolatedTime, ring);
-                } else {
-                    // The minProgressArc is calculated from 0 to create an
-                    // angle that
-                    // matches the stroke width.
-                    final float minProgressArc = (float) Math.toRadians(
-                            ring.getStrokeWidth() / (2 * Math.PI * ring.getCenterRadius()));
-                    final float startingEndTrim = ring.getStartingEndTrim();
-                    final float startingTrim = ring.getStartingStartTrim();
-                    final float startingRotation = ring.getStartingRotation();
-
-                    // Offset the minProgressArc to where the endTrim is
-                    // located.
-                    final float minArc = MAX_PROGRESS_ARC - minProgressArc;
-                    float endTrim = startingEndTrim + (minArc
-                            * START_CURVE_INTERPOLATOR.getInterpolation(interpolatedTime));
-                    float startTrim = startingTrim + (MAX_PROGRESS_ARC
-                            * END_CURVE_INTERPOLATOR.getInterpolation(interpolatedTime));
-
-                    final float sweepTrim =  endTrim-startTrim;
-                    //Avoid the ring to be a full circle
-                    if(Math.abs(sweepTrim)>=1){
-                        endTrim = startTrim+0.5f;
-                    }
-
-                    ring.setEndTrim(endTrim);
-
-                    ring.setStartTrim(startTrim);
-
-                    final float rotation = startingRotation + (0.25f * interpolatedTime);
-                    ring.setRotation(rotation);
-
-                    float groupRotation = ((720.0f / NUM_POINTS) * interpolatedTime)
-                            + (720.0f * (mRotationCount / NUM_POINTS));
-                    setRotation(groupRotation);
-                }
-            }
-        };
-        animation.setRepeatCount(Animation.INFINITE);
-        animation.setRepeatMode(Animation.RESTART);
-        animation.setInterpolator(LINEAR_INTERPOLATOR);
-        animation.setAnimationListener(new Animation.AnimationListener() {
-
-            @Override
-            public void onAnimationStart(Animation animation) {
-                mRotationCount = 0;
-            }
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        final boolean changed = super.setVisible(visible, restart);
+        //宿主更换Drawable时会取消已请求的帧，这里总是重新检查
+        updateTicking();
+        return changed;
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        updateTicking();
+    }
 
-            @Override
-            public void onAnimationEnd(Animation animation) {
-                // do nothing
+    /**
+     * 已开始、可见且有大小时才请求帧；暂停后恢复时从暂停的位置继续，不会跳动
+     */
+    private void updateTicking() {
+        final boolean shouldTick = mStarted && isVisible() && !getBounds().isEmpty();
+        unscheduleSelf(mFrameRunnable);
+        if (shouldTick) {
+            if (!mTicking) {
+                mLastFrameTime = -1;
             }
+            scheduleSelf(mFrameRunnable, SystemClock.uptimeMillis());
+        }
+        mTicking = shouldTick;
+    }
 
-            @Override
-            public void onAnimationRepeat(Animation animation) {
-                ring.storeOriginals();
-                ring.goToNextColor();
-                ring.setStartTrim(ring.getEndTrim());
-                if (mFinishing) {
-                    // finished closing the last ring from the swipe gesture; go
-                    // into progress mode
-                    mFinishing = false;
-                    animation.setDuration(ANIMATION_DURATION);
-                    ring.setShowArrow(false);
-                } else {
-                    mRotationCount = (mRotationCount + 1) % (NUM_POINTS);
-                }
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mTicking) {
+                return;
+            }
+            final long now = SystemClock.uptimeMillis();
+            if (mLastFrameTime >= 0) {
+                mCyclePlayTime += now - mLastFrameTime;
+            }
+            mLastFrameTime = now;
+            if (mCyclePlayTime >= mCycleDuration) {
+                //一圈结束，下一帧从新一圈的起点开始
+                applyAnimation(1f);
+                mCyclePlayTime = 0;
+                onCycleRepeat();
+            } else {
+                applyAnimation(mCyclePlayTime / (float) mCycleDuration);
             }
-        });
-        mAnimation = animation;
+            //宿主View用Choreographer的动画回调执行，任何不超过一帧的时间都在下一帧执行；
+            //不用固定延迟，进度由两帧之间实际经过的时间计算
+            scheduleSelf(this, now + 1);
+        }
+    };
+
+    private void applyAnimation(float interpolatedTime) {
+        final Ring ring = mRing;
+        if (mFinishing) {
+            applyFinishTranslation(interpolatedTime, ring);
+        } else {
+            // The minProgressArc is calculated from 0 to create an
+            // angle that
+            // matches the stroke width.
+            final float[] frame = mFrame;
+            SpinnerMath.progressFrame(interpolatedTime, ring.getStartingStartTrim(),
+                    ring.getStartingEndTrim(), ring.getStartingRotation(),
+                    ring.getMinProgressArc(), mRotationCount, frame);
+            ring.setEndTrim(frame[SpinnerMath.END_TRIM]);
+            ring.setStartTrim(frame[SpinnerMath.START_TRIM]);
+            ring.setRotation(frame[SpinnerMath.ROTATION]);
+            setRotation(frame[SpinnerMath.GROUP_ROTATION]);
+        }
+    }
+
+    private void onCycleRepeat() {
+        final Ring ring = mRing;
+        ring.storeOriginals();
+        ring.goToNextColor();
+        ring.setStartTrim(ring.getEndTrim());
+        if (mFinishing) {
+            // finished closing the last ring from the swipe gesture; go
+            // into progress mode
+            mFinishing = false;
+            mCycleDuration = ANIMATION_DURATION;
+            ring.setShowArrow(false);
+        } else {
+            mRotationCount = (mRotationCount + 1) % (NUM_POINTS);
+        }
     }
 
     public void showArrowOnFirstStart(boolean showArrowOnFirstStart) {
@@ -393,9 +495,35 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
     }
 
     private static class Ring {
-        private final RectF mTempBounds = new RectF();
+        /**
+         * 圆弧的绘制区域，只在bounds或尺寸变化时重新计算
+         */
+        private final RectF mArcBounds = new RectF();
+        private final Rect mArcSourceBounds = new Rect();
+        private boolean mArcBoundsDirty = true;
+        private float mCenterX;
+        private float mCenterY;
+        /**
+         * 以圆心为原点、未旋转的箭头，尺寸变化时重建；绘制用的是旋转平移后的副本
+         */
+        private final Path mArrowSource = new Path();
+        private final Path mArrow = new Path();
+        private final Matrix mArrowMatrix = new Matrix();
+        private boolean mArrowDirty = true;
+        private float mArrowAngle = Float.NaN;
+        /**
+         * 与线宽对应的最小圆弧，尺寸变化时计算
+         */
+        private float mMinProgressArc;
         private final Paint mPaint = new Paint();
         private final Paint mArrowPaint = new Paint();
+        private final Paint mAtlasPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        private boolean mAtlasEnabled;
+        /**
+         * 当前尺寸对应的圆弧图集，获取失败（超过内存上限）时为null
+         */
+        private SpinnerFrameAtlas mAtlas;
+        private boolean mAtlasUnavailable;
 
         private final Callback mCallback;
         private final Paint mCirclePaint = new Paint();
@@ -413,7 +541,6 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
         private float mStartingEndTrim;
         private float mStartingRotation;
         private boolean mShowArrow;
-        private Path mArrow;
         private float mArrowScale;
         private double mRingCenterRadius;
         private int mArrowWidth;
@@ -430,6 +557,9 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
 
             mArrowPaint.setStyle(Style.FILL);
             mArrowPaint.setAntiAlias(true);
+
+            mArrowSource.setFillType(Path.FillType.EVEN_ODD);
+            mArrow.setFillType(Path.FillType.EVEN_ODD);
         }
 
         public void setBackgroundColor(int color) {
@@ -445,65 +575,121 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
         public void setArrowDimensions(float width, float height) {
             mArrowWidth = (int) width;
             mArrowHeight = (int) height;
+            mArrowDirty = true;
         }
 
         /**
          * Draw the progress spinner
          */
         public void draw(Canvas c, Rect bounds) {
-            final RectF arcBounds = mTempBounds;
-            arcBounds.set(bounds);
-            arcBounds.inset(mStrokeInset, mStrokeInset);
+            if (mArcBoundsDirty || !mArcSourceBounds.equals(bounds)) {
+                updateArcBounds(bounds);
+            }
 
             final float startAngle = (mStartTrim + mRotation) * 360;
             final float endAngle = (mEndTrim + mRotation) * 360;
             float sweepAngle = endAngle - startAngle;
-            mPaint.setColor(mColors[mColorIndex]);
-            c.drawArc(arcBounds, startAngle, sweepAngle, false, mPaint);
+            if (mAtlasEnabled && obtainAtlas(bounds)) {
+                mAtlasPaint.setColor(mColors[mColorIndex]);
+                mAtlas.drawArc(c, bounds, startAngle, sweepAngle, mAtlasPaint);
+            } else {
+                mPaint.setColor(mColors[mColorIndex]);
+                c.drawArc(mArcBounds, startAngle, sweepAngle, false, mPaint);
+            }
 
-            drawTriangle(c, startAngle, sweepAngle, bounds);
+            drawTriangle(c, startAngle, sweepAngle);
 
             if (mAlpha < 255) {
                 mCirclePaint.setColor(mBackgroundColor);
                 mCirclePaint.setAlpha(255 - mAlpha);
-                c.drawCircle(bounds.exactCenterX(), bounds.exactCenterY(), bounds.width() / 2,
-                        mCirclePaint);
+                c.drawCircle(mCenterX, mCenterY, bounds.width() / 2, mCirclePaint);
             }
         }
 
-        private void drawTriangle(Canvas c, float startAngle, float sweepAngle, Rect bounds) {
-            if (mShowArrow) {
-                if (mArrow == null) {
-                    mArrow = new Path();
-                    mArrow.setFillType(Path.FillType.EVEN_ODD);
-                } else {
-                    mArrow.reset();
+        public void setFrameAtlasEnabled(boolean enabled) {
+            if (mAtlasEnabled != enabled) {
+                mAtlasEnabled = enabled;
+                if (!enabled) {
+                    releaseAtlas();
                 }
+            }
+        }
 
-                // Adjust the position of the triangle so that it is inset as
-                // much as the arc, but also centered on the arc.
-                float x = (float) (mRingCenterRadius * Math.cos(0) + bounds.exactCenterX());
-                float y = (float) (mRingCenterRadius * Math.sin(0) + bounds.exactCenterY());
-
-                // Update the path each time. This works around an issue in SKIA
-                // where concatenating a rotation matrix to a scale matrix
-                // ignored a starting negative rotation. This appears to have
-                // been fixed as of API 21.
-                mArrow.moveTo(0, 0);
-                mArrow.lineTo((mArrowWidth) * mArrowScale, 0);
-                mArrow.lineTo(((mArrowWidth) * mArrowScale / 2), (mArrowHeight
-                        * mArrowScale));
-                mArrow.offset(x-((mArrowWidth) * mArrowScale / 2), y);
-                mArrow.close();
+        public void releaseAtlas() {
+            if (mAtlas != null) {
+                mAtlas.release();
+                mAtlas = null;
+            }
+            mAtlasUnavailable = false;
+        }
+
+        /**
+         * @return 是否有与当前尺寸匹配的图集
+         */
+        private boolean obtainAtlas(Rect bounds) {
+            if (mAtlas != null && mAtlas.matches(bounds.width(), bounds.height(),
+                    mStrokeWidth, mStrokeInset)) {
+                return true;
+            }
+            if (mAtlas == null && mAtlasUnavailable) {
+                return false;
+            }
+            releaseAtlas();
+            mAtlas = SpinnerFrameAtlas.obtain(bounds.width(), bounds.height(),
+                    mStrokeWidth, mStrokeInset);
+            //获取失败后不在每一帧重试，尺寸变化或重新启用时再试
+            mAtlasUnavailable = mAtlas == null;
+            return mAtlas != null;
+        }
+
+        private void updateArcBounds(Rect bounds) {
+            mArcSourceBounds.set(bounds);
+            mArcBounds.set(bounds);
+            mArcBounds.inset(mStrokeInset, mStrokeInset);
+            mCenterX = bounds.exactCenterX();
+            mCenterY = bounds.exactCenterY();
+            mArcBoundsDirty = false;
+            mAtlasUnavailable = false;
+            //圆心变化后箭头需要重新平移
+            mArrowAngle = Float.NaN;
+        }
+
+        private void drawTriangle(Canvas c, float startAngle, float sweepAngle) {
+            if (mShowArrow) {
+                if (mArrowDirty) {
+                    buildArrow();
+                }
+                //when sweepAngle < 0 adjust the position of the arrow
+                final float angle = startAngle + (sweepAngle < 0 ? 0 : sweepAngle)
+                        - ARROW_OFFSET_ANGLE;
+                if (angle != mArrowAngle) {
+                    mArrowAngle = angle;
+                    mArrowMatrix.setRotate(angle);
+                    mArrowMatrix.postTranslate(mCenterX, mCenterY);
+                    mArrowSource.transform(mArrowMatrix, mArrow);
+                }
                 // draw a triangle
                 mArrowPaint.setColor(mColors[mColorIndex]);
-                //when sweepAngle < 0 adjust the position of the arrow
-                c.rotate(startAngle + (sweepAngle<0?0:sweepAngle) - ARROW_OFFSET_ANGLE, bounds.exactCenterX(),
-                        bounds.exactCenterY());
                 c.drawPath(mArrow, mArrowPaint);
             }
         }
 
+        /**
+         * 箭头位于圆弧0度的位置（圆心右侧半径处），尖端朝外侧下方
+         */
+        private void buildArrow() {
+            final float width = mArrowWidth * mArrowScale;
+            final float height = mArrowHeight * mArrowScale;
+            final float x = (float) mRingCenterRadius - width / 2;
+            mArrowSource.reset();
+            mArrowSource.moveTo(x, 0);
+            mArrowSource.lineTo(x + width, 0);
+            mArrowSource.lineTo(x + width / 2, height);
+            mArrowSource.close();
+            mArrowDirty = false;
+            mArrowAngle = Float.NaN;
+        }
+
         /**
          * Set the colors the progress spinner alternates between.
          *
@@ -533,6 +719,7 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
 
         public void setColorFilter(ColorFilter filter) {
             mPaint.setColorFilter(filter);
+            mAtlasPaint.setColorFilter(filter);
             invalidateSelf();
         }
 
@@ -561,9 +748,18 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
         public void setStrokeWidth(float strokeWidth) {
             mStrokeWidth = strokeWidth;
             mPaint.setStrokeWidth(strokeWidth);
+            updateMinProgressArc();
             invalidateSelf();
         }
 
+        private void updateMinProgressArc() {
+            mMinProgressArc = SpinnerMath.minProgressArc(mStrokeWidth, mRingCenterRadius);
+        }
+
+        public float getMinProgressArc() {
+            return mMinProgressArc;
+        }
+
         @SuppressWarnings("unused")
         public float getStartTrim() {
             return mStartTrim;
@@ -614,6 +810,7 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
                 insets = (float) (minEdge / 2.0f - mRingCenterRadius);
             }
             mStrokeInset = insets;
+            mArcBoundsDirty = true;
         }
 
         @SuppressWarnings("unused")
@@ -631,6 +828,8 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
          */
         public void setCenterRadius(double centerRadius) {
             mRingCenterRadius = centerRadius;
+            updateMinProgressArc();
+            mArrowDirty = true;
         }
 
         /**
@@ -649,6 +848,7 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
         public void setArrowScale(float scale) {
             if (scale != mArrowScale) {
                 mArrowScale = scale;
+                mArrowDirty = true;
                 invalidateSelf();
             }
         }
@@ -686,24 +886,4 @@ public class MaterialProgressDrawable extends Drawable implements Animatable {
             mCallback.invalidateDrawable(null);
         }
     }
-
-    /**
-     * Squishes the interpolation curve into the second half of the animation.
-     */
-    private static class EndCurveInterpolator extends AccelerateDecelerateInterpolator {
-        @Override
-        public float getInterpolation(float input) {
-            return super.getInterpolation(Math.max(0, (input - 0.5f) * 2.0f));
-        }
-    }
-
-    /**
-     * Squishes the interpolation curve into the first half of the animation.
-     */
-    private static class StartCurveInterpolator extends AccelerateDecelerateInterpolator {
-        @Override
-        public float getInterpolation(float input) {
-            return super.getInterpolation(Math.min(1, input * 2.0f));
-        }
-    }
-}
\ No newline at end of file
+}
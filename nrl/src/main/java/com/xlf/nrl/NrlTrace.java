@@ -0,0 +1,103 @@
+package com.xlf.nrl;
+
+import android.os.Build;
+import android.support.v4.os.TraceCompat;
+
+import java.lang.reflect.Method;
+
+/**
+ * Systrace/Perfetto中的trace片段，默认关闭，通过{@link NsRefreshLayout#setTraceEnabled(boolean)}打开。
+ * 片段名称固定，便于在trace中搜索和比较。
+ */
+final class NrlTrace {
+
+    static final String INTERCEPT_TOUCH = "NRL:onInterceptTouchEvent";
+    static final String HANDLE_SCROLL = "NRL:handleScroll";
+    static final String RELEASE_TOUCH = "NRL:releaseTouch";
+    static final String SETTLE_FRAME = "NRL:settleFrame";
+    static final String PROGRESS_LAYOUT = "NRL:CircleProgressBar.onLayout";
+    static final String PROGRESS_DRAW = "NRL:MaterialProgressDrawable.draw";
+    /**
+     * 从触发下拉刷新到调用finishPullRefresh的异步片段
+     */
+    static final String REFRESH = "NRL:refresh";
+
+    private static final long TRACE_TAG_APP = 1L << 12;
+
+    static boolean sEnabled;
+
+    /**
+     * 异步片段的方法，API 29以上为公开方法，以下为隐藏方法，打开开关后才查找
+     */
+    private static boolean sAsyncResolved;
+    private static Method sAsyncBegin;
+    private static Method sAsyncEnd;
+
+    private NrlTrace() {
+    }
+
+    static void beginSection(String name) {
+        if (sEnabled) {
+            TraceCompat.beginSection(name);
+        }
+    }
+
+    static void endSection() {
+        if (sEnabled) {
+            TraceCompat.endSection();
+        }
+    }
+
+    static void beginAsyncSection(String name, int cookie) {
+        if (sEnabled) {
+            invokeAsync(true, name, cookie);
+        }
+    }
+
+    static void endAsyncSection(String name, int cookie) {
+        if (sEnabled) {
+            invokeAsync(false, name, cookie);
+        }
+    }
+
+    private static void invokeAsync(boolean begin, String name, int cookie) {
+        if (!sAsyncResolved) {
+            resolveAsyncMethods();
+        }
+        final Method method = begin ? sAsyncBegin : sAsyncEnd;
+        if (method == null) {
+            return;
+        }
+        try {
+            if (Build.VERSION.SDK_INT >= 29) {
+                method.invoke(null, name, cookie);
+            } else {
+                method.invoke(null, TRACE_TAG_APP, name, cookie);
+            }
+        } catch (Exception e) {
+            //不可用时不再尝试
+            sAsyncBegin = null;
+            sAsyncEnd = null;
+        }
+    }
+
+    private static void resolveAsyncMethods() {
+        sAsyncResolved = true;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            return;
+        }
+        try {
+            final Class<?> trace = Class.forName("android.os.Trace");
+            if (Build.VERSION.SDK_INT >= 29) {
+                sAsyncBegin = trace.getMethod("beginAsyncSection", String.class, int.class);
+                sAsyncEnd = trace.getMethod("endAsyncSection", String.class, int.class);
+            } else {
+                sAsyncBegin = trace.getMethod("asyncTraceBegin", long.class, String.class, int.class);
+                sAsyncEnd = trace.getMethod("asyncTraceEnd", long.class, String.class, int.class);
+            }
+        } catch (Exception e) {
+            sAsyncBegin = null;
+            sAsyncEnd = null;
+        }
+    }
+}
@@ -15,4 +15,25 @@ public abstract class NrlUtils {
         DisplayMetrics metrics = context.getResources().getDisplayMetrics();
         return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, metrics);
     }
+
+    /**
+     * 把进度写入字符数组，格式为"进度%"，不创建字符串
+     *
+     * @return 写入的字符数
+     */
+    static int formatPercent(int value, char[] out) {
+        int length = 0;
+        do {
+            out[length++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        //数字是倒序写入的
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            char c = out[i];
+            out[i] = out[j];
+            out[j] = c;
+        }
+        out[length++] = '%';
+        return length;
+    }
 }
@@ -0,0 +1,65 @@
+package com.xlf.nrl;
+
+import android.view.View;
+
+/**
+ * 下拉刷新和上拉加载的指示视图，默认实现为{@link LoadView}。
+ * 视图按回弹高度添加到NsRefreshLayout中，拖动时只平移露出，内容应显示在去掉padding后的区域内
+ * （即最终高度的区域）。拖动和回弹过程中每帧都会回调{@link #onPull(float)}，实现中不要分配内存或请求重新布局。
+ */
+public interface NsRefreshIndicator {
+
+    /**
+     * 拖动中，未达到触发高度
+     */
+    int STATE_PULL = 0;
+    /**
+     * 拖动中，已达到触发高度，松手即触发
+     */
+    int STATE_RELEASE = 1;
+    /**
+     * 正在刷新或加载
+     */
+    int STATE_LOADING = 2;
+
+    /**
+     * @return 添加到NsRefreshLayout中的视图，每次返回同一个对象
+     */
+    View getView();
+
+    /**
+     * 拖动或回弹时露出高度变化
+     *
+     * @param fraction 露出高度与回弹高度的比例，[0..1]
+     */
+    void onPull(float fraction);
+
+    /**
+     * 状态切换，只在状态改变时回调
+     *
+     * @param state {@link #STATE_PULL}、{@link #STATE_RELEASE}或{@link #STATE_LOADING}
+     */
+    void onStateChanged(int state);
+
+    /**
+     * 开始刷新或加载的动画
+     */
+    void start();
+
+    /**
+     * 停止动画，视图开始收起
+     */
+    void stop();
+
+    /**
+     * 显示确定的进度，见{@link NsRefreshLayout#setRefreshProgress(int)}
+     *
+     * @param progress 进度，[0..100]
+     */
+    void setProgress(int progress);
+
+    /**
+     * 恢复为不确定进度的动画
+     */
+    void clearProgress();
+}
@@ -1,38 +1,80 @@
 package com.xlf.nrl;
 
-import android.animation.Animator;
-import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Color;
 import android.os.Build;
+import android.os.SystemClock;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.NestedScrollingParent;
+import android.support.v4.view.NestedScrollingParentHelper;
 import android.support.v4.view.ViewCompat;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.Gravity;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
-import android.view.ViewTreeObserver;
+import android.view.ViewConfiguration;
 import android.widget.AbsListView;
 import android.widget.FrameLayout;
+import android.widget.OverScroller;
 
 /**
  * Created by xiaolifan on 2015/12/21.
  * QQ: 1147904198
  * Email: xiao_lifan@163.com
  */
-public class NsRefreshLayout extends FrameLayout {
+public class NsRefreshLayout extends FrameLayout implements NestedScrollingParent,
+        NestedScrollingChild {
 
     private static final int LOADING_VIEW_FINAL_HEIGHT_DP = 80;
 
     private static final int ACTION_PULL_DOWN_REFRESH = 0;
     private static final int ACTION_PULL_UP_LOAD_MORE = 1;
 
+    //下拉刷新和上拉加载各自的状态，两者互不影响，可以同时进行
+    /**
+     * 空闲
+     */
+    private static final int STATE_IDLE = 0;
+    /**
+     * 手指拖动中
+     */
+    private static final int STATE_DRAGGING = 1;
+    /**
+     * 松手后回弹到最终高度，回弹结束后开始刷新或加载
+     */
+    private static final int STATE_SETTLING = 2;
+    /**
+     * 正在刷新（下拉刷新视图）
+     */
+    private static final int STATE_REFRESHING = 3;
+    /**
+     * 正在加载（上拉加载视图）
+     */
+    private static final int STATE_LOADING = 4;
+    /**
+     * 收起加载视图中，收起后回到空闲状态
+     */
+    private static final int STATE_RESETTING = 5;
 
-    private LoadView headerView;
-    private LoadView footerView;
+
+    /**
+     * 下拉刷新和上拉加载的指示视图，没有设置时使用{@link LoadView}
+     */
+    private NsRefreshIndicator headerIndicator;
+    private NsRefreshIndicator footerIndicator;
+    private View headerView;
+    private View footerView;
+    /**
+     * 指示视图当前的状态，只在变化时通知指示视图
+     */
+    private int mHeaderIndicatorState = NsRefreshIndicator.STATE_PULL;
+    private int mFooterIndicatorState = NsRefreshIndicator.STATE_PULL;
     private View mContentView;
 
     /**
@@ -47,20 +89,53 @@ public class NsRefreshLayout extends FrameLayout {
      * 是否自动加载更多：false-释放后加载更多，true-到达上拉加载条件后自动触发
      */
     private boolean mAutoLoadMore;
+    /**
+     * 自动加载更多时，距离最后一个条目多少条时提前触发
+     */
+    private int mLoadMorePrefetchItems;
+    /**
+     * 自动加载更多时，距离底部多少像素时提前触发
+     */
+    private int mLoadMorePrefetchDistance;
 
     private NsRefreshLayoutListener refreshLayoutListener;
     private NsRefreshLayoutController refreshLayoutController;
 
+    private static final int INVALID_POINTER = -1;
+
     /**
      * 上一次触摸的Y位置
      */
     private float preY;
-    private float preX;
+    /**
+     * 按下时的位置，用于判断是否超过滑动阈值以及滑动方向
+     */
+    private float mInitialDownY;
+    private float mInitialDownX;
+    /**
+     * 当前跟踪的手指
+     */
+    private int mActivePointerId = INVALID_POINTER;
+    private int mTouchSlop;
+    /**
+     * 还没有应用到加载视图的拖动距离，每帧合并应用一次
+     */
+    private float mPendingDragDistance;
+    private final FrameTicker dragFrameTicker = new FrameTicker(this, new FrameTicker.Callback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            flushPendingDrag();
+        }
+    });
 
     /**
-     * 是否正在进行刷新操作
+     * 下拉刷新视图的状态
+     */
+    private int mHeaderState = STATE_IDLE;
+    /**
+     * 上拉加载视图的状态
      */
-    private boolean isRefreshing = false;
+    private int mFooterState = STATE_IDLE;
 
     /**
      * 加载视图最终展示的高度
@@ -71,8 +146,28 @@ public class NsRefreshLayout extends FrameLayout {
      */
     private float loadingViewOverHeight = 0;
 
+    /**
+     * 下拉刷新视图当前露出的高度
+     */
+    private float mHeaderOffset = 0;
+    /**
+     * 上拉加载视图当前露出的高度
+     */
+    private float mFooterOffset = 0;
+
     private boolean actionDetermined = false;
+    /**
+     * 当前手势正在拖动的视图，-1表示手势没有拖动任何加载视图
+     */
     private int mCurrentAction = -1;
+    /**
+     * 按下时停住的正在回弹的加载视图，-1表示没有；手势确定方向后由它继续拖动，否则松手后继续回弹
+     */
+    private int mCapturedAction = -1;
+    /**
+     * 停住的加载视图原本是否正在回弹到刷新位置
+     */
+    private boolean mCapturedForDispatch = false;
 
     //控件属性
     /**
@@ -105,6 +200,111 @@ public class NsRefreshLayout extends FrameLayout {
      */
     private static final int CLICK_TOUCH_DEVIATION = 4;
 
+    /**
+     * 回弹弹簧的默认刚度（质量为1），临界阻尼下从回弹高度收起约300ms，距离越短越快
+     */
+    private static final float DEFAULT_SETTLE_STIFFNESS = 1000f;
+    /**
+     * 距离目标小于该值（px）且速度小于{@link #SETTLE_REST_VELOCITY}（px/s）时回弹结束
+     */
+    private static final float SETTLE_REST_DISPLACEMENT = 0.5f;
+    private static final float SETTLE_REST_VELOCITY = 10f;
+
+    //回弹动画结束后的动作
+    /**
+     * 重置状态
+     */
+    private static final int SETTLE_END_RESET = 0;
+    /**
+     * 开始刷新或加载
+     */
+    private static final int SETTLE_END_DISPATCH = 1;
+    /**
+     * 只露出加载视图，状态不变
+     */
+    private static final int SETTLE_END_NONE = 2;
+
+    /**
+     * 下拉刷新和上拉加载各一个回弹动画，包内可见便于测试
+     */
+    final SettleAnimator headerSettleAnimator = new SettleAnimator(true);
+    final SettleAnimator footerSettleAnimator = new SettleAnimator(false);
+
+    //嵌套滑动
+    private final NestedScrollingParentHelper mNestedScrollingParentHelper =
+            new NestedScrollingParentHelper(this);
+    private final NestedScrollingChildHelper mNestedScrollingChildHelper =
+            new NestedScrollingChildHelper(this);
+    private final int[] mParentScrollConsumed = new int[2];
+    private final int[] mParentOffsetInWindow = new int[2];
+    /**
+     * 内容视图正在进行嵌套滑动，此时不再拦截触摸事件
+     */
+    private boolean mNestedScrollInProgress;
+
+    //惯性滑动到边缘
+    /**
+     * 惯性滑动到边缘时是否露出加载视图
+     */
+    private boolean mFlingOverScrollEnabled = true;
+    /**
+     * 惯性滑动到底部时是否触发加载更多
+     */
+    private boolean mLoadMoreOnFling;
+    /**
+     * 进度条是否使用预先绘制的圆弧图集
+     */
+    private boolean mSpinnerFrameAtlas;
+    /**
+     * API 21及以上进度条是否绘制elevation阴影
+     */
+    private boolean mProgressElevationShadow = true;
+    /**
+     * 默认加载视图是否使用只有一层的{@link FlatLoadView}
+     */
+    private boolean mFlatLoadView;
+    /**
+     * 是否已经开始了刷新的异步trace片段
+     */
+    private boolean mRefreshTraceActive;
+
+    //耗时统计，只在设置了统计监听时记录，-1表示没有记录
+    private NsRefreshLayoutMetricsListener mMetricsListener;
+    private long mRefreshTriggerTime = -1;
+    private long mRefreshDispatchTime = -1;
+    private long mRefreshFinishTime = -1;
+    private int mRefreshDragFrames;
+    private long mLoadTriggerTime = -1;
+    private long mLoadDispatchTime = -1;
+    private long mLoadFinishTime = -1;
+    private int mLoadDragFrames;
+    private boolean mLoadAuto;
+    /**
+     * 当前拖动已经更新的帧数
+     */
+    private int mDragFrames;
+    private int mAutoLoadMoreCount;
+    private int mManualLoadMoreCount;
+    private VelocityTracker mVelocityTracker;
+    /**
+     * 模拟内容视图的惯性滑动，用于得到到达边缘时的剩余速度
+     */
+    private OverScroller mFlingScroller;
+    private int mMinimumFlingVelocity;
+    private int mMaximumFlingVelocity;
+    /**
+     * 内容视图惯性滑动的方向：-1向顶部，1向底部，0没有惯性滑动
+     */
+    private int mFlingDirection;
+    /**
+     * 松手时的手指速度（px/s，向下为正），作为回弹的初始速度
+     */
+    private float mReleaseVelocityY;
+    /**
+     * 回弹弹簧的固有角频率，等于刚度的平方根
+     */
+    private float mSettleOmega = (float) Math.sqrt(DEFAULT_SETTLE_STIFFNESS);
+
     public NsRefreshLayout(Context context) {
         super(context);
         initAttrs(context, null);
@@ -135,6 +335,13 @@ public class NsRefreshLayout extends FrameLayout {
         }
         loadingViewFinalHeight = NrlUtils.dipToPx(context, LOADING_VIEW_FINAL_HEIGHT_DP);
         loadingViewOverHeight = loadingViewFinalHeight * 2;
+        setNestedScrollingEnabled(true);
+
+        mFlingScroller = new OverScroller(context);
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
 
         if (isInEditMode() && attrs == null) {
             return;
@@ -197,46 +404,340 @@ public class NsRefreshLayout extends FrameLayout {
         }
 
         mAutoLoadMore = ta.getBoolean(R.styleable.NsRefreshLayout_auto_load_more, false);
+        mLoadMorePrefetchItems = ta.getInt(R.styleable.NsRefreshLayout_load_more_prefetch_items, 0);
+        mLoadMorePrefetchDistance = ta.getDimensionPixelSize(
+                R.styleable.NsRefreshLayout_load_more_prefetch_distance, 0);
         mPullRefreshEnable = ta.getBoolean(R.styleable.NsRefreshLayout_pull_refresh_enable, true);
         mPullLoadEnable = ta.getBoolean(R.styleable.NsRefreshLayout_pull_load_enable, true);
+        mFlingOverScrollEnabled = ta.getBoolean(R.styleable.NsRefreshLayout_fling_over_scroll, true);
+        mLoadMoreOnFling = ta.getBoolean(R.styleable.NsRefreshLayout_load_more_on_fling, false);
+        setSettleStiffness(ta.getFloat(R.styleable.NsRefreshLayout_settle_stiffness,
+                DEFAULT_SETTLE_STIFFNESS));
+        mSpinnerFrameAtlas = ta.getBoolean(R.styleable.NsRefreshLayout_spinner_frame_atlas, false);
+        mProgressElevationShadow = ta.getBoolean(
+                R.styleable.NsRefreshLayout_progress_elevation_shadow, true);
+        mFlatLoadView = ta.getBoolean(R.styleable.NsRefreshLayout_flat_load_view, false);
     }
 
     @Override
     protected void onFinishInflate() {
         super.onFinishInflate();
         mContentView = getChildAt(0);
-        setupViews();
-    }
-
-    private void setupViews() {
-        //下拉刷新视图
-        LayoutParams lp;
-        if (mPullRefreshEnable) {
-            lp = new LayoutParams(LayoutParams.MATCH_PARENT, 0);
-            headerView = new LoadView(getContext());
-            headerView.setLoadText(TextUtils.isEmpty(mPullRefreshText) ?
-                    getContext().getString(R.string.default_pull_refresh_text) : mPullRefreshText);
-            headerView.setStartEndTrim(0, 0.75f);
-            headerView.setBackgroundColor(mLoadViewBgColor);
-            headerView.setLoadTextColor(mLoadViewTextColor);
-            headerView.setProgressBgColor(mProgressBgColor);
-            headerView.setProgressColor(mProgressColor);
-            addView(headerView, lp);
-        }
-
-        if (mPullLoadEnable) {
-            //上拉加载更多视图
-            lp = new LayoutParams(LayoutParams.MATCH_PARENT, 0);
-            lp.gravity = Gravity.BOTTOM;
-            footerView = new LoadView(getContext());
-            footerView.setLoadText(TextUtils.isEmpty(mPullLoadText) ?
-                    getContext().getString(R.string.default_pull_load_text) : mPullLoadText);
-            footerView.setStartEndTrim(0.5f, 1.25f);
-            footerView.setBackgroundColor(mLoadViewBgColor);
-            footerView.setLoadTextColor(mLoadViewTextColor);
-            footerView.setProgressBgColor(mProgressBgColor);
-            footerView.setProgressColor(mProgressColor);
-            addView(footerView, lp);
+    }
+
+    /**
+     * 创建下拉刷新视图。很多页面从来不会被下拉，所以不在加载布局时创建，
+     * 等第一次可能露出它的手势或刷新时才创建。包内可见便于测试
+     */
+    void ensureHeaderView() {
+        if (headerIndicator != null) {
+            return;
+        }
+        //文字只解析一次，拖动过程中只在跨过阈值时切换
+        addHeaderIndicator(createLoadView(TextUtils.isEmpty(mPullRefreshText) ?
+                        getContext().getString(R.string.default_pull_refresh_text) : mPullRefreshText,
+                getContext().getString(R.string.release_to_refresh),
+                getContext().getString(R.string.refresh_text), 0, 0.75f));
+    }
+
+    /**
+     * 创建上拉加载视图，与下拉刷新视图一样延迟到第一次需要时
+     */
+    void ensureFooterView() {
+        if (footerIndicator != null) {
+            return;
+        }
+        addFooterIndicator(createLoadView(TextUtils.isEmpty(mPullLoadText) ?
+                        getContext().getString(R.string.default_pull_load_text) : mPullLoadText,
+                getContext().getString(R.string.release_to_load),
+                getContext().getString(R.string.load_text), 0.5f, 1.25f));
+    }
+
+    /**
+     * 按控件属性创建默认的加载视图
+     */
+    private NsRefreshIndicator createLoadView(String pullText, String releaseText,
+                                              String loadingText, float startTrim, float endTrim) {
+        DefaultLoadIndicator loadView = mFlatLoadView ? new FlatLoadView(getContext())
+                : new LoadView(getContext());
+        loadView.setLoadTexts(pullText, releaseText, loadingText);
+        loadView.setStartEndTrim(startTrim, endTrim);
+        loadView.setBackgroundColor(mLoadViewBgColor);
+        loadView.setLoadTextColor(mLoadViewTextColor);
+        loadView.setProgressBgColor(mProgressBgColor);
+        loadView.setProgressColor(mProgressColor);
+        loadView.setFrameAtlasEnabled(mSpinnerFrameAtlas);
+        loadView.setElevationShadowEnabled(mProgressElevationShadow);
+        return loadView;
+    }
+
+    private void addHeaderIndicator(NsRefreshIndicator indicator) {
+        headerIndicator = indicator;
+        headerView = indicator.getView();
+        mHeaderIndicatorState = NsRefreshIndicator.STATE_PULL;
+        //加载视图只按回弹高度测量一次，拖动过程中通过平移露出，避免每次移动都重新布局
+        LayoutParams lp = new LayoutParams(LayoutParams.MATCH_PARENT, (int) loadingViewOverHeight);
+        //内容显示在视图底部最终高度的区域内
+        headerView.setPadding(0, (int) (loadingViewOverHeight - loadingViewFinalHeight), 0, 0);
+        addLoadView(headerView, lp);
+        setHeaderOffset(mHeaderOffset);
+    }
+
+    private void addFooterIndicator(NsRefreshIndicator indicator) {
+        footerIndicator = indicator;
+        footerView = indicator.getView();
+        mFooterIndicatorState = NsRefreshIndicator.STATE_PULL;
+        LayoutParams lp = new LayoutParams(LayoutParams.MATCH_PARENT, (int) loadingViewOverHeight);
+        lp.gravity = Gravity.BOTTOM;
+        //内容显示在视图顶部最终高度的区域内
+        footerView.setPadding(0, 0, 0, (int) (loadingViewOverHeight - loadingViewFinalHeight));
+        addLoadView(footerView, lp);
+        setFooterOffset(mFooterOffset);
+    }
+
+    /**
+     * 添加加载视图。控件已经布局过时只测量和布局加载视图自己，不请求整个控件重新布局，
+     * 避免手势开始时多一次布局
+     */
+    private void addLoadView(View loadView, LayoutParams lp) {
+        if (isLayoutRequested() || getWidth() == 0) {
+            addView(loadView, lp);
+            return;
+        }
+        addViewInLayout(loadView, -1, lp, true);
+        final int left = getPaddingLeft();
+        final int width = getWidth() - left - getPaddingRight();
+        final int top = lp.gravity == Gravity.BOTTOM
+                ? getHeight() - getPaddingBottom() - lp.height : getPaddingTop();
+        loadView.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(lp.height, MeasureSpec.EXACTLY));
+        loadView.layout(left, top, left + width, top + lp.height);
+    }
+
+    /**
+     * 切换下拉刷新指示视图的状态
+     */
+    private void setHeaderIndicatorState(int state) {
+        if (mHeaderIndicatorState != state) {
+            mHeaderIndicatorState = state;
+            headerIndicator.onStateChanged(state);
+        }
+    }
+
+    /**
+     * 切换上拉加载指示视图的状态
+     */
+    private void setFooterIndicatorState(int state) {
+        if (mFooterIndicatorState != state) {
+            mFooterIndicatorState = state;
+            footerIndicator.onStateChanged(state);
+        }
+    }
+
+    /**
+     * 按下时内容视图已经在边缘，提前创建可能被拖出的加载视图，创建的耗时落在判断手势的几帧内
+     */
+    private void prepareLoadViews() {
+        if (mPullRefreshEnable && mHeaderState == STATE_IDLE && !canChildScrollUp()) {
+            ensureHeaderView();
+        }
+        if (mPullLoadEnable && mFooterState == STATE_IDLE && !canChildScrollDown()) {
+            ensureFooterView();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        autoLoadMoreTrigger.attach(mContentView);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        autoLoadMoreTrigger.detach();
+        dragFrameTicker.cancel();
+        mPendingDragDistance = 0;
+        stopFlingTracking();
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        trackFlingVelocity(ev);
+        boolean handled = super.dispatchTouchEvent(ev);
+        final int action = ev.getActionMasked();
+        if ((action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL)
+                && mCapturedAction != -1 && mCurrentAction == -1) {
+            //子视图禁止拦截等情况下没有机会判断手势，松手后继续回弹
+            releaseCapturedEdge();
+        }
+        return handled;
+    }
+
+    /**
+     * 按下时如果加载视图正在回弹，停在当前位置，等手势确定后再决定继续拖动还是继续回弹
+     */
+    private void captureSettlingEdge() {
+        mCapturedAction = -1;
+        if (headerSettleAnimator.isRunning()) {
+            headerSettleAnimator.cancel();
+            mCapturedAction = ACTION_PULL_DOWN_REFRESH;
+            mCapturedForDispatch = mHeaderState == STATE_SETTLING;
+        } else if (footerSettleAnimator.isRunning() && mFooterState != STATE_LOADING) {
+            //正在加载时露出上拉加载视图的动画不能被打断，否则加载中的状态会丢失
+            footerSettleAnimator.cancel();
+            mCapturedAction = ACTION_PULL_UP_LOAD_MORE;
+            mCapturedForDispatch = mFooterState == STATE_SETTLING;
+        }
+    }
+
+    /**
+     * 由当前手势从停住的位置继续拖动
+     */
+    private void dragCapturedEdge() {
+        mCurrentAction = mCapturedAction;
+        if (mCapturedAction == ACTION_PULL_DOWN_REFRESH) {
+            mHeaderState = STATE_DRAGGING;
+        } else {
+            mFooterState = STATE_DRAGGING;
+        }
+    }
+
+    /**
+     * 停住的加载视图是否由这个方向的手势继续拖动：手势方向露出这一侧，
+     * 或者内容视图不能向这个方向滚动时才接管，否则交给内容视图滚动
+     *
+     * @param dy 手指移动的距离，大于0为向下
+     */
+    private boolean capturedEdgeFollows(float dy) {
+        if (mCapturedAction == ACTION_PULL_DOWN_REFRESH) {
+            return dy > 0 || !canChildScrollDown();
+        }
+        return dy < 0 || !canChildScrollUp();
+    }
+
+    /**
+     * 手势没有拖动停住的加载视图，从当前位置继续回弹
+     */
+    private void releaseCapturedEdge() {
+        final boolean determined = actionDetermined;
+        dragCapturedEdge();
+        mReleaseVelocityY = 0;
+        releaseTouch();
+        actionDetermined = determined;
+    }
+
+    /**
+     * 记录手指速度，松手时如果内容视图开始惯性滑动，跟踪它是否滑动到边缘
+     */
+    private void trackFlingVelocity(MotionEvent ev) {
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN: {
+                stopFlingTracking();
+                mReleaseVelocityY = 0;
+                if (mVelocityTracker == null) {
+                    mVelocityTracker = VelocityTracker.obtain();
+                } else {
+                    mVelocityTracker.clear();
+                }
+                mVelocityTracker.addMovement(ev);
+                break;
+            }
+
+            case MotionEvent.ACTION_MOVE: {
+                if (mVelocityTracker != null) {
+                    mVelocityTracker.addMovement(ev);
+                }
+                break;
+            }
+
+            case MotionEvent.ACTION_UP: {
+                if (mVelocityTracker != null) {
+                    mVelocityTracker.addMovement(ev);
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+                    float velocityY = mVelocityTracker.getYVelocity(
+                            ev.getPointerId(ev.getActionIndex()));
+                    mReleaseVelocityY = velocityY;
+                    //拖动加载视图时松手不是内容视图的惯性滑动
+                    if (mFlingOverScrollEnabled && mCurrentAction == -1
+                            && Math.abs(velocityY) > mMinimumFlingVelocity) {
+                        startFlingTracking(velocityY);
+                    }
+                    mVelocityTracker.clear();
+                }
+                break;
+            }
+
+            case MotionEvent.ACTION_CANCEL: {
+                if (mVelocityTracker != null) {
+                    mVelocityTracker.clear();
+                }
+                break;
+            }
+        }
+    }
+
+    private void startFlingTracking(float velocityY) {
+        //手指向下滑动，内容向顶部滚动
+        int direction = velocityY > 0 ? -1 : 1;
+        if ((direction < 0 && !canChildScrollUp()) || (direction > 0 && !canChildScrollDown())) {
+            return;
+        }
+        mFlingDirection = direction;
+        mFlingScroller.fling(0, 0, 0, (int) velocityY, 0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        ViewCompat.postOnAnimation(this, flingEdgeRunnable);
+    }
+
+    private void stopFlingTracking() {
+        mFlingDirection = 0;
+        mFlingScroller.abortAnimation();
+        removeCallbacks(flingEdgeRunnable);
+    }
+
+    private final Runnable flingEdgeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mFlingDirection == 0 || !mFlingScroller.computeScrollOffset()) {
+                mFlingDirection = 0;
+                return;
+            }
+            if ((mFlingDirection < 0 && !canChildScrollUp())
+                    || (mFlingDirection > 0 && !canChildScrollDown())) {
+                onFlingReachEdge(mFlingDirection, mFlingScroller.getCurrVelocity());
+            } else {
+                ViewCompat.postOnAnimation(NsRefreshLayout.this, this);
+            }
+        }
+    };
+
+    /**
+     * 惯性滑动到达边缘，剩余速度作为弹簧的初始速度，加载视图露出后自然收回
+     */
+    private void onFlingReachEdge(int direction, float velocity) {
+        stopFlingTracking();
+        //临界阻尼弹簧从0出发的最大位移为 v/(ω·e)，限制最多露出最终高度
+        velocity = Math.min(velocity, (float) (loadingViewFinalHeight * mSettleOmega * Math.E));
+        if (velocity / (mSettleOmega * Math.E) < CLICK_TOUCH_DEVIATION) {
+            return;
+        }
+        if (direction < 0) {
+            if (mPullRefreshEnable && mHeaderState == STATE_IDLE) {
+                ensureHeaderView();
+                mHeaderState = STATE_RESETTING;
+                headerSettleAnimator.animate(0, 0, velocity, SETTLE_END_RESET);
+            }
+        } else if (mPullLoadEnable && mFooterState == STATE_IDLE) {
+            if (mLoadMoreOnFling) {
+                startPullUpLoadMore(0, velocity, false);
+            } else {
+                ensureFooterView();
+                mFooterState = STATE_RESETTING;
+                footerSettleAnimator.animate(0, 0, velocity, SETTLE_END_RESET);
+            }
         }
     }
 
@@ -247,7 +748,16 @@ public class NsRefreshLayout extends FrameLayout {
 
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
-        if ((!mPullRefreshEnable && !mPullLoadEnable) || isRefreshing) {
+        NrlTrace.beginSection(NrlTrace.INTERCEPT_TOUCH);
+        try {
+            return interceptTouchEvent(ev);
+        } finally {
+            NrlTrace.endSection();
+        }
+    }
+
+    private boolean interceptTouchEvent(MotionEvent ev) {
+        if ((!mPullRefreshEnable && !mPullLoadEnable) || mNestedScrollInProgress) {
             return super.onInterceptTouchEvent(ev);
         }
 
@@ -257,30 +767,58 @@ public class NsRefreshLayout extends FrameLayout {
                     mPullRefreshEnable = refreshLayoutController.isPullRefreshEnable();
                     mPullLoadEnable = refreshLayoutController.isPullLoadEnable();
                 }
-                preY = ev.getY();
-                preX = ev.getX();
+                mActivePointerId = ev.getPointerId(0);
+                mInitialDownY = preY = ev.getY();
+                mInitialDownX = ev.getX();
                 actionDetermined = false;
+                mCurrentAction = -1;
+                captureSettlingEdge();
+                prepareLoadViews();
                 return super.onInterceptTouchEvent(ev);
             }
 
             case MotionEvent.ACTION_MOVE: {
-                float currentY = ev.getY();
-                float currentX = ev.getX();
-                float dy = currentY - preY;
-                float dx = currentX - preX;
-                preY = currentY;
-                preX = currentX;
+                int pointerIndex = ev.findPointerIndex(mActivePointerId);
+                if (pointerIndex < 0) {
+                    return false;
+                }
+                float currentY = ev.getY(pointerIndex);
                 if (!actionDetermined) {
-                    actionDetermined = true;
-                    //判断是下拉刷新还是上拉加载更多
-                    if (dy > 0 && !canChildScrollUp() && mPullRefreshEnable) {
-                        mCurrentAction = ACTION_PULL_DOWN_REFRESH;
-                    } else if (dy < 0 && !canChildScrollDown() && mPullLoadEnable) {
-                        mCurrentAction = ACTION_PULL_UP_LOAD_MORE;
-                    } else {
+                    float dy = currentY - mInitialDownY;
+                    float dx = ev.getX(pointerIndex) - mInitialDownX;
+                    float absDy = Math.abs(dy);
+                    float absDx = Math.abs(dx);
+                    if (absDx > mTouchSlop && absDx >= absDy) {
+                        //横向滑动，整个手势都不拦截
+                        actionDetermined = true;
                         mCurrentAction = -1;
+                        if (mCapturedAction != -1) {
+                            releaseCapturedEdge();
+                        }
+                    } else if (absDy > mTouchSlop) {
+                        actionDetermined = true;
+                        //判断是下拉刷新还是上拉加载更多，正在刷新或加载的一方不响应拖动
+                        if (mCapturedAction != -1 && capturedEdgeFollows(dy)) {
+                            dragCapturedEdge();
+                        } else if (mCapturedAction != -1) {
+                            //手势要滚动内容视图，停住的加载视图继续回弹
+                            releaseCapturedEdge();
+                        } else if (dy > 0 && !canChildScrollUp() && mPullRefreshEnable
+                                && mHeaderState == STATE_IDLE) {
+                            ensureHeaderView();
+                            mCurrentAction = ACTION_PULL_DOWN_REFRESH;
+                            mHeaderState = STATE_DRAGGING;
+                        } else if (dy < 0 && !canChildScrollDown() && mPullLoadEnable
+                                && mFooterState == STATE_IDLE) {
+                            ensureFooterView();
+                            mCurrentAction = ACTION_PULL_UP_LOAD_MORE;
+                            mFooterState = STATE_DRAGGING;
+                        } else {
+                            mCurrentAction = -1;
+                        }
                     }
                 }
+                preY = currentY;
 
                 if (mCurrentAction != -1) {
                     return true;
@@ -289,6 +827,22 @@ public class NsRefreshLayout extends FrameLayout {
                 }
             }
 
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                onPointerDown(ev);
+                return super.onInterceptTouchEvent(ev);
+            }
+
+            case MotionEvent.ACTION_POINTER_UP: {
+                onSecondaryPointerUp(ev);
+                return super.onInterceptTouchEvent(ev);
+            }
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL: {
+                mActivePointerId = INVALID_POINTER;
+                return super.onInterceptTouchEvent(ev);
+            }
+
             default: {
                 return super.onInterceptTouchEvent(ev);
             }
@@ -297,25 +851,46 @@ public class NsRefreshLayout extends FrameLayout {
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        if ((!mPullRefreshEnable && !mPullLoadEnable) || isRefreshing) {
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN && mCapturedAction != -1
+                && mCurrentAction == -1) {
+            //子视图没有消费按下事件，直接由当前手势拖动停住的加载视图
+            actionDetermined = true;
+            dragCapturedEdge();
+            return true;
+        }
+        if ((!mPullRefreshEnable && !mPullLoadEnable) || mCurrentAction == -1) {
             return false;
         }
 
         switch (event.getActionMasked()) {
             case MotionEvent.ACTION_MOVE: {
-                float currentY = event.getY();
-                float currentX = event.getX();
-                float dy = currentY - preY;
-                float dx = currentX - preX;
+                int pointerIndex = event.findPointerIndex(mActivePointerId);
+                if (pointerIndex < 0) {
+                    return false;
+                }
+                //拖动距离累计到下一帧统一应用。
+                //拖动是线性的，历史采样点的差值之和等于当前位置的差值，不需要逐个处理
+                float currentY = event.getY(pointerIndex);
+                addPendingDrag(currentY - preY);
                 preY = currentY;
-                preX = currentX;
-                handleScroll(dy);
-                observerArriveBottom();
+                return true;
+            }
+
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                onPointerDown(event);
+                return true;
+            }
+
+            case MotionEvent.ACTION_POINTER_UP: {
+                onSecondaryPointerUp(event);
                 return true;
             }
 
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL: {
+                mActivePointerId = INVALID_POINTER;
+                //松手前先应用还没有处理的拖动距离
+                flushPendingDrag();
                 return releaseTouch();
             }
 
@@ -326,89 +901,358 @@ public class NsRefreshLayout extends FrameLayout {
 
     }
 
-    private void observerArriveBottom() {
-        if (isRefreshing || !mAutoLoadMore || !mPullLoadEnable) {
-            return;
+    /**
+     * 累计拖动距离，下一帧统一应用。累计时就按露出高度的范围截断，
+     * 拖过边界后反向拖动立即生效，与逐个事件应用时一致
+     */
+    private void addPendingDrag(float distance) {
+        mPendingDragDistance += distance;
+        if (mCurrentAction == ACTION_PULL_DOWN_REFRESH) {
+            mPendingDragDistance = pendingHeaderOffset() - mHeaderOffset;
+        } else if (mCurrentAction == ACTION_PULL_UP_LOAD_MORE) {
+            mPendingDragDistance = mFooterOffset - pendingFooterOffset();
         }
-        mContentView.getViewTreeObserver().addOnScrollChangedListener(
-                new ViewTreeObserver.OnScrollChangedListener() {
+        dragFrameTicker.schedule();
+    }
 
-                    @Override
-                    public void onScrollChanged() {
-                        mContentView.removeCallbacks(flingRunnable);
-                        mContentView.postDelayed(flingRunnable, 6);
-                    }
-                });
+    /**
+     * 包括还没有应用的拖动距离在内，下拉刷新视图露出的高度
+     */
+    private float pendingHeaderOffset() {
+        return PullMath.clampOffset(mHeaderOffset + mPendingDragDistance, loadingViewOverHeight);
     }
 
-    private Runnable flingRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (isRefreshing || !mAutoLoadMore || !mPullLoadEnable) {
-                return;
-            }
+    /**
+     * 包括还没有应用的拖动距离在内，上拉加载视图露出的高度
+     */
+    private float pendingFooterOffset() {
+        return PullMath.clampOffset(mFooterOffset - mPendingDragDistance, loadingViewOverHeight);
+    }
 
-            if (!canChildScrollDown()) {
-                mCurrentAction = ACTION_PULL_UP_LOAD_MORE;
-                isRefreshing = true;
-                startPullUpLoadMore(0);
-            }
+    /**
+     * 应用累计的拖动距离
+     */
+    private void flushPendingDrag() {
+        dragFrameTicker.cancel();
+        float distance = mPendingDragDistance;
+        mPendingDragDistance = 0;
+        if (distance != 0 && mCurrentAction != -1) {
+            handleScroll(distance);
         }
-    };
+    }
 
     /**
-     * 处理滚动
+     * 新的手指按下后由它接管拖动，从它当前的位置开始计算，避免加载视图跳动
      */
-    private boolean handleScroll(float distanceY) {
-        if (!canChildScrollUp() && mCurrentAction == ACTION_PULL_DOWN_REFRESH &&
-                mPullRefreshEnable) {
-            //下拉刷新
-            LayoutParams lp = (LayoutParams) headerView.getLayoutParams();
-            lp.height += distanceY;
-            if (lp.height < 0) {
-                lp.height = 0;
-            } else if (lp.height > loadingViewOverHeight) {
-                lp.height = (int) loadingViewOverHeight;
-            }
-            headerView.setLayoutParams(lp);
-            if (lp.height < loadingViewOverHeight) {
-                headerView.setLoadText(TextUtils.isEmpty(mPullRefreshText) ?
-                        getContext().getString(R.string.default_pull_refresh_text) : mPullRefreshText);
+    private void onPointerDown(MotionEvent ev) {
+        int pointerIndex = ev.getActionIndex();
+        mActivePointerId = ev.getPointerId(pointerIndex);
+        preY = ev.getY(pointerIndex);
+        if (!actionDetermined) {
+            mInitialDownY = preY;
+            mInitialDownX = ev.getX(pointerIndex);
+        }
+    }
+
+    /**
+     * 正在拖动的手指抬起后，由剩下的手指接管拖动
+     */
+    private void onSecondaryPointerUp(MotionEvent ev) {
+        int pointerIndex = ev.getActionIndex();
+        if (ev.getPointerId(pointerIndex) == mActivePointerId) {
+            int newPointerIndex = pointerIndex == 0 ? 1 : 0;
+            mActivePointerId = ev.getPointerId(newPointerIndex);
+            preY = ev.getY(newPointerIndex);
+            if (!actionDetermined) {
+                mInitialDownY = preY;
+                mInitialDownX = ev.getX(newPointerIndex);
+            }
+        }
+    }
+
+    // NestedScrollingParent
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return isEnabled() && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes);
+        startNestedScroll(axes & ViewCompat.SCROLL_AXIS_VERTICAL);
+        if (refreshLayoutController != null) {
+            mPullRefreshEnable = refreshLayoutController.isPullRefreshEnable();
+            mPullLoadEnable = refreshLayoutController.isPullLoadEnable();
+        }
+        actionDetermined = false;
+        mCurrentAction = -1;
+        mNestedScrollInProgress = true;
+        if (mCapturedAction == -1) {
+            captureSettlingEdge();
+        }
+        prepareLoadViews();
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        if (mCurrentAction == -1 && mCapturedAction != -1 && dy != 0) {
+            //嵌套滑动的dy与手指移动方向相反
+            if (capturedEdgeFollows(-dy)) {
+                dragCapturedEdge();
             } else {
-                headerView.setLoadText(getContext().getString(R.string.release_to_refresh));
+                releaseCapturedEdge();
+            }
+        }
+        //加载视图露出时先由加载视图消耗滑动距离，反方向的滑动最多收起加载视图。
+        //消耗的距离按包括未应用部分在内的高度立即计算，拖动和触摸一样累计到下一帧统一应用
+        if (mCurrentAction == ACTION_PULL_DOWN_REFRESH && dy != 0) {
+            final float offset = pendingHeaderOffset();
+            if (offset > 0) {
+                int consumedY = (int) Math.min(dy, Math.ceil(offset));
+                consumed[1] = consumedY;
+                addPendingDrag(-consumedY);
+            }
+        } else if (mCurrentAction == ACTION_PULL_UP_LOAD_MORE && dy != 0) {
+            final float offset = pendingFooterOffset();
+            if (offset > 0) {
+                int consumedY = (int) Math.max(dy, -Math.ceil(offset));
+                consumed[1] = consumedY;
+                addPendingDrag(-consumedY);
+            }
+        }
+
+        //剩余的部分交给外层的嵌套滑动父视图
+        final int[] parentConsumed = mParentScrollConsumed;
+        if (dispatchNestedPreScroll(dx - consumed[0], dy - consumed[1], parentConsumed, null)) {
+            consumed[0] += parentConsumed[0];
+            consumed[1] += parentConsumed[1];
+        }
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed,
+                               int dyUnconsumed) {
+        //先交给外层的嵌套滑动父视图，剩余的距离用来拖动加载视图
+        dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed,
+                mParentOffsetInWindow);
+        final int dy = dyUnconsumed + mParentOffsetInWindow[1];
+        if (dy == 0) {
+            return;
+        }
+        if (mCurrentAction == -1) {
+            if (dy < 0 && !canChildScrollUp() && mPullRefreshEnable
+                    && mHeaderState == STATE_IDLE) {
+                ensureHeaderView();
+                mCurrentAction = ACTION_PULL_DOWN_REFRESH;
+                mHeaderState = STATE_DRAGGING;
+            } else if (dy > 0 && !canChildScrollDown() && mPullLoadEnable
+                    && mFooterState == STATE_IDLE) {
+                ensureFooterView();
+                mCurrentAction = ACTION_PULL_UP_LOAD_MORE;
+                mFooterState = STATE_DRAGGING;
+            }
+        }
+        if (mCurrentAction != -1) {
+            addPendingDrag(-dy);
+        }
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        mNestedScrollingParentHelper.onStopNestedScroll(target);
+        mNestedScrollInProgress = false;
+        if (mCurrentAction != -1) {
+            //松手前先应用还没有处理的拖动距离
+            flushPendingDrag();
+            releaseTouch();
+        } else if (mCapturedAction != -1) {
+            releaseCapturedEdge();
+        }
+        stopNestedScroll();
+    }
+
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        return dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        return dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public int getNestedScrollAxes() {
+        return mNestedScrollingParentHelper.getNestedScrollAxes();
+    }
+
+    // NestedScrollingChild
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        mNestedScrollingChildHelper.setNestedScrollingEnabled(enabled);
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return mNestedScrollingChildHelper.isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return mNestedScrollingChildHelper.startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        mNestedScrollingChildHelper.stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return mNestedScrollingChildHelper.hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed,
+                                        int dyUnconsumed, int[] offsetInWindow) {
+        return mNestedScrollingChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed,
+                dxUnconsumed, dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return mNestedScrollingChildHelper.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return mNestedScrollingChildHelper.dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return mNestedScrollingChildHelper.dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    private final AutoLoadMoreTrigger autoLoadMoreTrigger = new AutoLoadMoreTrigger(this,
+            new AutoLoadMoreTrigger.Callback() {
+                @Override
+                public void onCheckLoadMore() {
+                    checkAutoLoadMore();
+                }
+            });
+
+    /**
+     * 内容视图滚动后检查是否需要自动加载更多
+     */
+    void checkAutoLoadMore() {
+        if (!mAutoLoadMore || !mPullLoadEnable) {
+            return;
+        }
+        if (mFooterState == STATE_LOADING && mFooterOffset <= 0
+                && !footerSettleAnimator.isRunning() && !canChildScrollDown()) {
+            //提前加载还没有完成就滚动到了底部，露出上拉加载视图显示加载中，不再回调onLoadMore
+            revealPrefetchLoading();
+            return;
+        }
+        if (mFooterState != STATE_IDLE) {
+            return;
+        }
+
+        if (!canChildScrollDown()) {
+            startPullUpLoadMore(0, 0, true);
+        } else if (autoLoadMoreTrigger.shouldPrefetch(mLoadMorePrefetchItems,
+                mLoadMorePrefetchDistance)) {
+            //提前加载，不显示上拉加载视图
+            mFooterState = STATE_LOADING;
+            if (mMetricsListener != null) {
+                markLoadMoreTriggered(true);
+                markLoadMoreDispatched();
             }
-            headerView.setProgressRotation(lp.height / loadingViewOverHeight);
-            adjustContentViewHeight(lp.height);
-            if (lp.height > 0) {
+            if (refreshLayoutListener != null) {
+                refreshLayoutListener.onLoadMore();
+            }
+        }
+    }
+
+    /**
+     * 露出正在提前加载的上拉加载视图，完成加载时和普通的加载一样收起
+     */
+    private void revealPrefetchLoading() {
+        ensureFooterView();
+        footerIndicator.start();
+        setFooterIndicatorState(NsRefreshIndicator.STATE_LOADING);
+        footerSettleAnimator.animate(mFooterOffset, loadingViewFinalHeight, 0, SETTLE_END_NONE);
+    }
+
+    /**
+     * 处理滚动
+     */
+    private boolean handleScroll(float distanceY) {
+        if (mMetricsListener != null) {
+            mDragFrames++;
+        }
+        NrlTrace.beginSection(NrlTrace.HANDLE_SCROLL);
+        try {
+            return applyScroll(distanceY);
+        } finally {
+            NrlTrace.endSection();
+        }
+    }
+
+    private boolean applyScroll(float distanceY) {
+        if (!canChildScrollUp() && mCurrentAction == ACTION_PULL_DOWN_REFRESH &&
+                mPullRefreshEnable) {
+            //下拉刷新
+            float offset = PullMath.clampOffset(mHeaderOffset + distanceY, loadingViewOverHeight);
+            setHeaderOffset(offset);
+            setHeaderIndicatorState(PullMath.reachesTrigger(offset, loadingViewOverHeight) ?
+                    NsRefreshIndicator.STATE_RELEASE : NsRefreshIndicator.STATE_PULL);
+            headerIndicator.onPull(PullMath.rotationFraction(offset, loadingViewOverHeight));
+            if (offset > 0) {
                 return true;
             }
 
         } else if (!canChildScrollDown() && mCurrentAction == ACTION_PULL_UP_LOAD_MORE && mPullLoadEnable) {
             //上拉加载更多
-            LayoutParams lp = (LayoutParams) footerView.getLayoutParams();
-            lp.height -= distanceY;
-            if (lp.height < 0) {
-                lp.height = 0;
-            } else if (lp.height > loadingViewOverHeight) {
-                lp.height = (int) loadingViewOverHeight;
-            }
-            footerView.setLayoutParams(lp);
-            if (lp.height < loadingViewOverHeight) {
-                footerView.setLoadText(TextUtils.isEmpty(mPullLoadText) ?
-                        getContext().getString(R.string.default_pull_load_text) : mPullLoadText);
-            } else {
-                footerView.setLoadText(getContext().getString(R.string.release_to_load));
-            }
-            footerView.setProgressRotation(lp.height / loadingViewOverHeight);
-            adjustContentViewHeight(-lp.height);
-            if (lp.height > 0) {
+            float offset = PullMath.clampOffset(mFooterOffset - distanceY, loadingViewOverHeight);
+            setFooterOffset(offset);
+            setFooterIndicatorState(PullMath.reachesTrigger(offset, loadingViewOverHeight) ?
+                    NsRefreshIndicator.STATE_RELEASE : NsRefreshIndicator.STATE_PULL);
+            footerIndicator.onPull(PullMath.rotationFraction(offset, loadingViewOverHeight));
+            if (offset > 0) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * 设置下拉刷新视图露出的高度，只修改平移量，不触发重新布局
+     */
+    private void setHeaderOffset(float offset) {
+        mHeaderOffset = offset;
+        headerView.setTranslationY(offset - loadingViewOverHeight);
+        headerView.setVisibility(offset > 0 ? VISIBLE : INVISIBLE);
+        adjustContentViewHeight(mHeaderOffset - mFooterOffset);
+    }
+
+    /**
+     * 设置上拉加载视图露出的高度，只修改平移量，不触发重新布局
+     */
+    private void setFooterOffset(float offset) {
+        mFooterOffset = offset;
+        footerView.setTranslationY(loadingViewOverHeight - offset);
+        footerView.setVisibility(offset > 0 ? VISIBLE : INVISIBLE);
+        adjustContentViewHeight(mHeaderOffset - mFooterOffset);
+    }
+
     private void adjustContentViewHeight(float h) {
+        if (mContentView == null) {
+            return;
+        }
         mContentView.setTranslationY(h);
         //下面的方式可以看到完整内容，但是有掉帧现象
         /*if (mCurrentAction == ACTION_PULL_DOWN_REFRESH) {
@@ -421,168 +1265,287 @@ public class NsRefreshLayout extends FrameLayout {
     }
 
     private boolean releaseTouch() {
+        NrlTrace.beginSection(NrlTrace.RELEASE_TOUCH);
+        try {
+            return releaseDraggedView();
+        } finally {
+            NrlTrace.endSection();
+        }
+    }
+
+    private boolean releaseDraggedView() {
         boolean result = false;
-        LayoutParams lp;
-        if (mPullRefreshEnable && mCurrentAction == ACTION_PULL_DOWN_REFRESH) {
-            lp = (LayoutParams) headerView.getLayoutParams();
-            if (lp.height >= loadingViewOverHeight) {
+        //停住的加载视图原本要刷新或加载时，不论松手位置都继续触发，不会丢掉已经触发的回调
+        final boolean captured = mCapturedAction != -1 && mCapturedAction == mCurrentAction;
+        final float triggerHeight = captured && mCapturedForDispatch ? 0 : loadingViewOverHeight;
+        if (mCurrentAction == ACTION_PULL_DOWN_REFRESH && mHeaderState == STATE_DRAGGING) {
+            if (mHeaderOffset >= triggerHeight) {
                 //触发下拉刷新
-                startPullDownRefresh(lp.height);
+                startPullDownRefresh(mHeaderOffset, mReleaseVelocityY);
                 result = true;
-            } else if (lp.height > 0) {
+            } else if (mHeaderOffset > 0) {
                 //未满足下拉刷新触发条件，重置状态
-                resetPullDownRefresh(lp.height);
-                result = lp.height >= CLICK_TOUCH_DEVIATION;
+                resetPullDownRefresh(mHeaderOffset, mReleaseVelocityY);
+                result = mHeaderOffset >= CLICK_TOUCH_DEVIATION;
             } else {
                 resetPullRefreshState();
             }
         }
 
-        if (mPullLoadEnable && mCurrentAction == ACTION_PULL_UP_LOAD_MORE) {
-            lp = (LayoutParams) footerView.getLayoutParams();
-            if (lp.height >= loadingViewOverHeight) {
+        if (mCurrentAction == ACTION_PULL_UP_LOAD_MORE && mFooterState == STATE_DRAGGING) {
+            if (mFooterOffset >= triggerHeight) {
                 //触发上拉加载更多
-                startPullUpLoadMore(lp.height);
+                startPullUpLoadMore(mFooterOffset, -mReleaseVelocityY, false);
                 result = true;
-            } else if (lp.height > 0) {
+            } else if (mFooterOffset > 0) {
                 //未满足上拉加载更多触发条件，重置状态
-                resetPullUpLoadMore(lp.height);
-                result = lp.height >= CLICK_TOUCH_DEVIATION;
+                resetPullUpLoadMore(mFooterOffset, -mReleaseVelocityY);
+                result = mFooterOffset >= CLICK_TOUCH_DEVIATION;
             } else {
                 resetPullLoadState();
             }
         }
+        actionDetermined = false;
+        mCurrentAction = -1;
+        mCapturedAction = -1;
+        mCapturedForDispatch = false;
+        mDragFrames = 0;
         return result;
     }
 
-    private void startPullDownRefresh(int headerViewHeight) {
-        isRefreshing = true;
-        ValueAnimator animator = ValueAnimator.ofFloat(headerViewHeight, loadingViewFinalHeight);
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                LayoutParams lp = (LayoutParams) headerView.getLayoutParams();
-                lp.height = (int) ((Float) animation.getAnimatedValue()).floatValue();
-                headerView.setLayoutParams(lp);
-                adjustContentViewHeight(lp.height);
-            }
-        });
-        animator.addListener(new SimpleAnimatorListener() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                headerView.start();
-                headerView.setLoadText(getContext().getString(R.string.refresh_text));
-
-                if (refreshLayoutListener != null) {
-                    refreshLayoutListener.onRefresh();
-                }
-            }
-        });
-        animator.setDuration(300);
-        animator.start();
+    private void startPullDownRefresh(float headerViewHeight, float velocity) {
+        if (mMetricsListener != null && mRefreshTriggerTime < 0) {
+            mRefreshTriggerTime = SystemClock.uptimeMillis();
+            mRefreshDragFrames = mDragFrames;
+        }
+        if (!mRefreshTraceActive) {
+            mRefreshTraceActive = true;
+            NrlTrace.beginAsyncSection(NrlTrace.REFRESH, System.identityHashCode(this));
+        }
+        ensureHeaderView();
+        mHeaderState = STATE_SETTLING;
+        headerSettleAnimator.animate(headerViewHeight, loadingViewFinalHeight, velocity,
+                SETTLE_END_DISPATCH);
+    }
+
+    /**
+     * 下拉刷新视图回弹到最终高度，开始刷新
+     */
+    private void dispatchRefresh() {
+        mHeaderState = STATE_REFRESHING;
+        //上一次刷新留下的确定进度不能影响这次的旋转动画
+        headerIndicator.clearProgress();
+        headerIndicator.start();
+        setHeaderIndicatorState(NsRefreshIndicator.STATE_LOADING);
+
+        if (mMetricsListener != null && mRefreshTriggerTime >= 0) {
+            mRefreshDispatchTime = SystemClock.uptimeMillis();
+        }
+
+        if (refreshLayoutListener != null) {
+            refreshLayoutListener.onRefresh();
+        }
     }
 
     /**
      * 重置下拉刷新状态
      *
      * @param headerViewHeight 当前下拉刷新视图的高度
+     * @param velocity         下拉刷新视图高度变化的初始速度
      */
-    private void resetPullDownRefresh(int headerViewHeight) {
-        headerView.stop();
+    private void resetPullDownRefresh(float headerViewHeight, float velocity) {
+        mHeaderState = STATE_RESETTING;
+        headerIndicator.clearProgress();
+        headerIndicator.stop();
         //headerView.setStartEndTrim(0, 0.75f);
-        ValueAnimator animator = ValueAnimator.ofFloat(headerViewHeight, 0);
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                LayoutParams lp = (LayoutParams) headerView.getLayoutParams();
-                lp.height = (int) ((Float) animation.getAnimatedValue()).floatValue();
-                headerView.setLayoutParams(lp);
-                adjustContentViewHeight(lp.height);
-            }
-        });
-        animator.addListener(new SimpleAnimatorListener() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                resetPullRefreshState();
-
-            }
-        });
-        animator.setDuration(300);
-        animator.start();
+        headerSettleAnimator.animate(headerViewHeight, 0, velocity, SETTLE_END_RESET);
     }
 
     private void resetPullRefreshState() {
         //重置动画结束才算完全完成刷新动作
-        isRefreshing = false;
-        actionDetermined = false;
-        mCurrentAction = -1;
-        headerView.setLoadText(TextUtils.isEmpty(mPullRefreshText) ?
-                getContext().getString(R.string.default_pull_refresh_text) : mPullRefreshText);
-    }
-
-    private void startPullUpLoadMore(int headerViewHeight) {
-        isRefreshing = true;
-        ValueAnimator animator = ValueAnimator.ofFloat(headerViewHeight, loadingViewFinalHeight);
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                LayoutParams lp = (LayoutParams) footerView.getLayoutParams();
-                lp.height = (int) ((Float) animation.getAnimatedValue()).floatValue();
-                footerView.setLayoutParams(lp);
-                adjustContentViewHeight(-lp.height);
-            }
-        });
-        animator.addListener(new SimpleAnimatorListener() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                footerView.start();
-                footerView.setLoadText(getContext().getString(R.string.load_text));
-
-                if (refreshLayoutListener != null) {
-                    refreshLayoutListener.onLoadMore();
-                }
-            }
-        });
-        animator.setDuration(300);
-        animator.start();
+        mHeaderState = STATE_IDLE;
+        //触发后被打断没有完成刷新时，也结束trace片段
+        endRefreshTrace();
+        if (mMetricsListener != null) {
+            reportRefreshMetrics();
+        }
+        mRefreshTriggerTime = -1;
+        if (headerIndicator != null) {
+            setHeaderIndicatorState(NsRefreshIndicator.STATE_PULL);
+        }
+    }
+
+    /**
+     * @param auto 是否由自动加载更多触发，否则为拖动或惯性滑动触发
+     */
+    private void startPullUpLoadMore(float headerViewHeight, float velocity, boolean auto) {
+        if (mMetricsListener != null) {
+            markLoadMoreTriggered(auto);
+        }
+        //自动加载更多时可能还没有创建上拉加载视图
+        ensureFooterView();
+        mFooterState = STATE_SETTLING;
+        footerSettleAnimator.animate(headerViewHeight, loadingViewFinalHeight, velocity,
+                SETTLE_END_DISPATCH);
+    }
+
+    /**
+     * 上拉加载视图回弹到最终高度，开始加载
+     */
+    private void dispatchLoadMore() {
+        mFooterState = STATE_LOADING;
+        footerIndicator.start();
+        setFooterIndicatorState(NsRefreshIndicator.STATE_LOADING);
+
+        if (mMetricsListener != null) {
+            markLoadMoreDispatched();
+        }
+        if (refreshLayoutListener != null) {
+            refreshLayoutListener.onLoadMore();
+        }
     }
 
     /**
      * 重置下拉刷新状态
      *
      * @param headerViewHeight 当前下拉刷新视图的高度
+     * @param velocity         上拉加载视图高度变化的初始速度
      */
-    private void resetPullUpLoadMore(int headerViewHeight) {
-        footerView.stop();
+    private void resetPullUpLoadMore(float headerViewHeight, float velocity) {
+        mFooterState = STATE_RESETTING;
+        footerIndicator.stop();
         //footerView.setStartEndTrim(0.5f, 1.25f);
-        ValueAnimator animator = ValueAnimator.ofFloat(headerViewHeight, 0);
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                LayoutParams lp = (LayoutParams) footerView.getLayoutParams();
-                lp.height = (int) ((Float) animation.getAnimatedValue()).floatValue();
-                footerView.setLayoutParams(lp);
-                adjustContentViewHeight(-lp.height);
-            }
-        });
-        animator.addListener(new SimpleAnimatorListener() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                resetPullLoadState();
-
-            }
-        });
-        animator.setDuration(300);
-        animator.start();
+        footerSettleAnimator.animate(headerViewHeight, 0, velocity, SETTLE_END_RESET);
     }
 
     private void resetPullLoadState() {
         //重置动画结束才算完全完成刷新动作
-        isRefreshing = false;
-        actionDetermined = false;
-        mCurrentAction = -1;
-        footerView.setLoadText(TextUtils.isEmpty(mPullLoadText) ?
-                getContext().getString(R.string.default_pull_load_text) : mPullLoadText);
+        mFooterState = STATE_IDLE;
+        if (mMetricsListener != null) {
+            reportLoadMoreMetrics();
+        }
+        mLoadTriggerTime = -1;
+        //提前加载时可能还没有创建上拉加载视图
+        if (footerIndicator != null) {
+            setFooterIndicatorState(NsRefreshIndicator.STATE_PULL);
+        }
+    }
+
+    /**
+     * 加载视图的回弹动画，每个方向只创建一次并重复使用。
+     * 使用临界阻尼弹簧的解析解，按帧时间计算位置，时长由剩余距离和初始速度决定，
+     * 在不同刷新率下表现一致。
+     */
+    class SettleAnimator implements FrameTicker.Callback {
+
+        private final boolean header;
+        private final FrameTicker ticker = new FrameTicker(NsRefreshLayout.this, this);
+        private float to;
+        /**
+         * 开始时相对目标的位移和速度
+         */
+        private float startDisplacement;
+        private float startVelocity;
+        /**
+         * 第一帧的时间，小于0表示还没有开始
+         */
+        private long startTimeNanos;
+        /**
+         * 动画结束后的动作：{@link #SETTLE_END_RESET}、{@link #SETTLE_END_DISPATCH}
+         * 或{@link #SETTLE_END_NONE}
+         */
+        private int endAction;
+        private boolean running;
+
+        SettleAnimator(boolean header) {
+            this.header = header;
+        }
+
+        void animate(float from, float to, float velocity, int endAction) {
+            this.to = to;
+            this.startDisplacement = from - to;
+            this.startVelocity = velocity;
+            this.endAction = endAction;
+            startTimeNanos = -1;
+            running = true;
+            ticker.schedule();
+        }
+
+        void cancel() {
+            running = false;
+            ticker.cancel();
+        }
+
+        boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!running) {
+                return;
+            }
+            NrlTrace.beginSection(NrlTrace.SETTLE_FRAME);
+            try {
+                step(frameTimeNanos);
+            } finally {
+                NrlTrace.endSection();
+            }
+        }
+
+        private void step(long frameTimeNanos) {
+            if (startTimeNanos < 0) {
+                startTimeNanos = frameTimeNanos;
+            }
+            final float omega = mSettleOmega;
+            final float t = (frameTimeNanos - startTimeNanos) / 1000000000f;
+            final float decay = (float) Math.exp(-omega * t);
+            final float displacement = PullMath.springDisplacement(startDisplacement,
+                    startVelocity, omega, t, decay);
+            final float velocity = PullMath.springVelocity(startDisplacement, startVelocity,
+                    omega, t, decay);
+
+            if (Math.abs(displacement) < SETTLE_REST_DISPLACEMENT
+                    && Math.abs(velocity) < SETTLE_REST_VELOCITY) {
+                running = false;
+                applyOffset(to);
+                onSettled();
+            } else {
+                applyOffset(to + displacement);
+                ticker.schedule();
+            }
+        }
+
+        private void applyOffset(float offset) {
+            offset = PullMath.clampOffset(offset, loadingViewOverHeight);
+            float fraction = PullMath.rotationFraction(offset, loadingViewOverHeight);
+            if (header) {
+                setHeaderOffset(offset);
+                headerIndicator.onPull(fraction);
+            } else {
+                setFooterOffset(offset);
+                footerIndicator.onPull(fraction);
+            }
+        }
+
+        private void onSettled() {
+            if (endAction == SETTLE_END_NONE) {
+                return;
+            }
+            if (endAction == SETTLE_END_DISPATCH) {
+                if (header) {
+                    dispatchRefresh();
+                } else {
+                    dispatchLoadMore();
+                }
+            } else {
+                if (header) {
+                    resetPullRefreshState();
+                } else {
+                    resetPullLoadState();
+                }
+            }
+        }
     }
 
     /**
@@ -633,6 +1596,228 @@ public class NsRefreshLayout extends FrameLayout {
         }
     }
 
+    /**
+     * 设置自动加载更多时提前触发的条目数，0表示滚动到底部才触发
+     */
+    public void setLoadMorePrefetchItems(int prefetchItems) {
+        this.mLoadMorePrefetchItems = prefetchItems;
+    }
+
+    /**
+     * 设置自动加载更多时提前触发的像素距离，0表示滚动到底部才触发
+     */
+    public void setLoadMorePrefetchDistance(int prefetchDistance) {
+        this.mLoadMorePrefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * @return 是否正在下拉刷新
+     */
+    public boolean isRefreshing() {
+        return mHeaderState == STATE_SETTLING || mHeaderState == STATE_REFRESHING;
+    }
+
+    /**
+     * @return 是否正在加载更多
+     */
+    public boolean isLoadingMore() {
+        return mFooterState == STATE_SETTLING || mFooterState == STATE_LOADING;
+    }
+
+    /**
+     * 打开或关闭Systrace/Perfetto中的trace片段，默认关闭。
+     * 打开后触摸、拖动、回弹每一帧以及进度条的布局和绘制都有对应的片段，整个刷新过程为一个异步片段
+     */
+    public static void setTraceEnabled(boolean enabled) {
+        NrlTrace.sEnabled = enabled;
+    }
+
+    private void endRefreshTrace() {
+        if (mRefreshTraceActive) {
+            mRefreshTraceActive = false;
+            NrlTrace.endAsyncSection(NrlTrace.REFRESH, System.identityHashCode(this));
+        }
+    }
+
+    /**
+     * 在下拉刷新视图中显示确定的刷新进度（如下载进度），刷新结束后自动恢复为旋转动画。
+     * 只在正在刷新时有效，调用finishPullRefresh之后才到达的进度会被忽略
+     *
+     * @param progress 进度，[0..100]；小于0时恢复为旋转动画
+     */
+    public void setRefreshProgress(int progress) {
+        if (headerIndicator == null || mHeaderState != STATE_REFRESHING) {
+            return;
+        }
+        if (progress < 0) {
+            headerIndicator.clearProgress();
+            headerIndicator.start();
+        } else {
+            headerIndicator.setProgress(progress);
+        }
+    }
+
+    /**
+     * 设置惯性滑动到边缘时是否露出加载视图
+     */
+    public void setFlingOverScrollEnabled(boolean enabled) {
+        this.mFlingOverScrollEnabled = enabled;
+        if (!enabled) {
+            stopFlingTracking();
+        }
+    }
+
+    /**
+     * 设置惯性滑动到底部时是否直接触发加载更多
+     */
+    public void setLoadMoreOnFling(boolean loadMoreOnFling) {
+        this.mLoadMoreOnFling = loadMoreOnFling;
+    }
+
+    /**
+     * 设置回弹弹簧的刚度，越大回弹越快，弹簧始终为临界阻尼不会来回振荡
+     */
+    public void setSettleStiffness(float stiffness) {
+        if (stiffness > 0) {
+            this.mSettleOmega = (float) Math.sqrt(stiffness);
+        }
+    }
+
+    /**
+     * 设置默认加载视图是否使用只有一层的{@link FlatLoadView}，只影响之后创建的加载视图
+     */
+    public void setFlatLoadViewEnabled(boolean enabled) {
+        this.mFlatLoadView = enabled;
+    }
+
+    /**
+     * 设置自定义的下拉刷新指示视图代替默认的{@link LoadView}，传null恢复默认视图。
+     * 指示视图的padding会被修改为只在最终高度的区域内显示内容
+     */
+    public void setHeaderIndicator(NsRefreshIndicator indicator) {
+        if (headerIndicator != null) {
+            headerIndicator.stop();
+            removeView(headerView);
+            headerIndicator = null;
+            headerView = null;
+        }
+        if (indicator != null) {
+            addHeaderIndicator(indicator);
+        } else if (mHeaderState != STATE_IDLE) {
+            ensureHeaderView();
+        }
+        if (mHeaderState == STATE_REFRESHING) {
+            headerIndicator.start();
+            setHeaderIndicatorState(NsRefreshIndicator.STATE_LOADING);
+        }
+    }
+
+    /**
+     * 设置自定义的上拉加载指示视图代替默认的{@link LoadView}，传null恢复默认视图
+     */
+    public void setFooterIndicator(NsRefreshIndicator indicator) {
+        if (footerIndicator != null) {
+            footerIndicator.stop();
+            removeView(footerView);
+            footerIndicator = null;
+            footerView = null;
+        }
+        if (indicator != null) {
+            addFooterIndicator(indicator);
+        } else if (mFooterState != STATE_IDLE) {
+            ensureFooterView();
+        }
+        //提前加载时上拉加载视图没有显示，不需要开始动画
+        if (mFooterState == STATE_LOADING && mFooterOffset > 0) {
+            footerIndicator.start();
+            setFooterIndicatorState(NsRefreshIndicator.STATE_LOADING);
+        }
+    }
+
+    /**
+     * 设置进度条是否使用预先绘制的圆弧图集，头部和底部共用同一份图集
+     */
+    public void setSpinnerFrameAtlasEnabled(boolean enabled) {
+        this.mSpinnerFrameAtlas = enabled;
+        if (headerIndicator instanceof DefaultLoadIndicator) {
+            ((DefaultLoadIndicator) headerIndicator).setFrameAtlasEnabled(enabled);
+        }
+        if (footerIndicator instanceof DefaultLoadIndicator) {
+            ((DefaultLoadIndicator) footerIndicator).setFrameAtlasEnabled(enabled);
+        }
+    }
+
+    /**
+     * 设置API 21及以上进度条是否绘制elevation阴影，关闭后减少RenderThread的阴影绘制
+     */
+    public void setProgressElevationShadowEnabled(boolean enabled) {
+        this.mProgressElevationShadow = enabled;
+        if (headerIndicator instanceof DefaultLoadIndicator) {
+            ((DefaultLoadIndicator) headerIndicator).setElevationShadowEnabled(enabled);
+        }
+        if (footerIndicator instanceof DefaultLoadIndicator) {
+            ((DefaultLoadIndicator) footerIndicator).setElevationShadowEnabled(enabled);
+        }
+    }
+
+    /**
+     * 设置刷新和加载更多的耗时统计，不设置时不做任何统计
+     */
+    public void setRefreshLayoutMetricsListener(NsRefreshLayoutMetricsListener metricsListener) {
+        this.mMetricsListener = metricsListener;
+        mRefreshTriggerTime = -1;
+        mLoadTriggerTime = -1;
+        mDragFrames = 0;
+        mAutoLoadMoreCount = 0;
+        mManualLoadMoreCount = 0;
+    }
+
+    private void markLoadMoreTriggered(boolean auto) {
+        //停住后重新松手不算新的一次加载
+        if (mLoadTriggerTime >= 0) {
+            return;
+        }
+        mLoadTriggerTime = SystemClock.uptimeMillis();
+        mLoadDispatchTime = -1;
+        mLoadFinishTime = -1;
+        mLoadDragFrames = auto ? 0 : mDragFrames;
+        mLoadAuto = auto;
+    }
+
+    private void markLoadMoreDispatched() {
+        if (mLoadTriggerTime < 0) {
+            return;
+        }
+        mLoadDispatchTime = SystemClock.uptimeMillis();
+        if (mLoadAuto) {
+            mAutoLoadMoreCount++;
+        } else {
+            mManualLoadMoreCount++;
+        }
+    }
+
+    private void reportRefreshMetrics() {
+        //触发后被打断没有回调onRefresh的不统计
+        if (mRefreshTriggerTime >= 0 && mRefreshDispatchTime >= 0 && mRefreshFinishTime >= 0) {
+            mMetricsListener.onRefreshMetrics(mRefreshDispatchTime - mRefreshTriggerTime,
+                    mRefreshFinishTime - mRefreshDispatchTime,
+                    SystemClock.uptimeMillis() - mRefreshFinishTime, mRefreshDragFrames);
+        }
+        mRefreshDispatchTime = -1;
+        mRefreshFinishTime = -1;
+    }
+
+    private void reportLoadMoreMetrics() {
+        if (mLoadTriggerTime >= 0 && mLoadDispatchTime >= 0 && mLoadFinishTime >= 0) {
+            mMetricsListener.onLoadMoreMetrics(mLoadDispatchTime - mLoadTriggerTime,
+                    mLoadFinishTime - mLoadDispatchTime,
+                    SystemClock.uptimeMillis() - mLoadFinishTime, mLoadDragFrames, mLoadAuto,
+                    mAutoLoadMoreCount, mManualLoadMoreCount);
+        }
+        mLoadDispatchTime = -1;
+        mLoadFinishTime = -1;
+    }
+
     public void setRefreshLayoutListener(NsRefreshLayoutListener refreshLayoutListener) {
         this.refreshLayoutListener = refreshLayoutListener;
     }
@@ -643,6 +1828,37 @@ public class NsRefreshLayout extends FrameLayout {
         void onLoadMore();
     }
 
+    /**
+     * 刷新和加载更多的耗时统计，时间单位为毫秒，都是基本类型，不产生额外对象
+     */
+    public interface NsRefreshLayoutMetricsListener {
+        /**
+         * 一次下拉刷新结束，下拉刷新视图完全收起时回调
+         *
+         * @param triggerToRefreshMs   从松手触发到回调onRefresh
+         * @param refreshToFinishMs    从onRefresh到调用finishPullRefresh
+         * @param finishToCollapseMs   从finishPullRefresh到下拉刷新视图完全收起
+         * @param dragFrames           触发这次刷新的拖动过程更新了多少帧
+         */
+        void onRefreshMetrics(long triggerToRefreshMs, long refreshToFinishMs,
+                              long finishToCollapseMs, int dragFrames);
+
+        /**
+         * 一次加载更多结束，上拉加载视图完全收起（提前加载时为调用finishPullLoad）时回调
+         *
+         * @param triggerToLoadMoreMs  从触发到回调onLoadMore
+         * @param loadMoreToFinishMs   从onLoadMore到调用finishPullLoad
+         * @param finishToCollapseMs   从finishPullLoad到上拉加载视图完全收起
+         * @param dragFrames           触发这次加载的拖动过程更新了多少帧，自动加载时为0
+         * @param auto                 这次是否由自动加载更多触发
+         * @param autoCount            设置统计后自动加载更多的总次数
+         * @param manualCount          设置统计后拖动或惯性滑动触发加载更多的总次数
+         */
+        void onLoadMoreMetrics(long triggerToLoadMoreMs, long loadMoreToFinishMs,
+                               long finishToCollapseMs, int dragFrames, boolean auto,
+                               int autoCount, int manualCount);
+    }
+
     public void setRefreshLayoutController(NsRefreshLayoutController nsRefreshLayoutController) {
         this.refreshLayoutController = nsRefreshLayoutController;
     }
@@ -663,8 +1879,12 @@ public class NsRefreshLayout extends FrameLayout {
      * 完成下拉刷新动作
      */
     public void finishPullRefresh() {
-        if (mCurrentAction == ACTION_PULL_DOWN_REFRESH) {
-            resetPullDownRefresh(headerView == null ? 0 : headerView.getMeasuredHeight());
+        endRefreshTrace();
+        if (mMetricsListener != null && mRefreshDispatchTime >= 0 && mRefreshFinishTime < 0) {
+            mRefreshFinishTime = SystemClock.uptimeMillis();
+        }
+        if (mHeaderState == STATE_REFRESHING || mHeaderState == STATE_SETTLING) {
+            resetPullDownRefresh(mHeaderOffset, 0);
         }
     }
 
@@ -672,8 +1892,21 @@ public class NsRefreshLayout extends FrameLayout {
      * 完成上拉加载更多动作
      */
     public void finishPullLoad() {
-        if (mCurrentAction == ACTION_PULL_UP_LOAD_MORE) {
-            resetPullUpLoadMore(footerView == null ? 0 : footerView.getMeasuredHeight());
+        if (mMetricsListener != null && mLoadDispatchTime >= 0 && mLoadFinishTime < 0) {
+            mLoadFinishTime = SystemClock.uptimeMillis();
+        }
+        if (mFooterState == STATE_LOADING || mFooterState == STATE_SETTLING) {
+            if (mFooterOffset > 0) {
+                resetPullUpLoadMore(mFooterOffset, 0);
+            } else {
+                //提前加载时加载视图没有显示，直接重置状态；
+                //自动加载刚开始回弹时还没有露出，要先停止回弹，否则回弹结束后会再次回调onLoadMore
+                footerSettleAnimator.cancel();
+                if (footerView != null) {
+                    setFooterOffset(0);
+                }
+                resetPullLoadState();
+            }
         }
     }
 }
@@ -0,0 +1,42 @@
+package com.xlf.nrl;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * 确定进度时画在进度条中间的百分比文字。进度变化时写入字符数组，绘制时不再创建字符串。
+ * {@link CircleProgressBar}和{@link FlatLoadView}共用
+ */
+class ProgressText {
+
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final char[] mText = new char[12];
+    private int mLength;
+    private int mTextSize;
+
+    ProgressText(int textSize, int color) {
+        mTextSize = textSize;
+        mPaint.setTextSize(textSize);
+        mPaint.setColor(color);
+    }
+
+    void setColor(int color) {
+        mPaint.setColor(color);
+    }
+
+    /**
+     * 文字格式为"进度%"
+     */
+    void setProgress(int progress) {
+        mLength = NrlUtils.formatPercent(progress, mText);
+    }
+
+    /**
+     * 以(centerX, centerY)为中心绘制
+     */
+    void draw(Canvas canvas, int centerX, int centerY) {
+        int x = centerX - mLength * mTextSize / 4;
+        int y = centerY + mTextSize / 4;
+        canvas.drawText(mText, 0, mLength, x, y, mPaint);
+    }
+}
@@ -0,0 +1,50 @@
+package com.xlf.nrl;
+
+/**
+ * 拖动和回弹中的纯计算，不依赖Android类，可以直接在JVM上测试和做基准测试。
+ */
+final class PullMath {
+
+    private PullMath() {
+    }
+
+    /**
+     * 把加载视图露出的高度限制在[0, max]内
+     */
+    static float clampOffset(float offset, float max) {
+        if (offset < 0) {
+            return 0;
+        }
+        return offset > max ? max : offset;
+    }
+
+    /**
+     * 进度条随拖动旋转的比例
+     */
+    static float rotationFraction(float offset, float max) {
+        return offset / max;
+    }
+
+    /**
+     * 松手时是否达到触发刷新或加载的高度
+     */
+    static boolean reachesTrigger(float offset, float triggerHeight) {
+        return offset >= triggerHeight;
+    }
+
+    /**
+     * 临界阻尼弹簧t秒后相对目标的位移：x(t) = (x0 + (v0 + ωx0)t)e^(-ωt)
+     *
+     * @param decay e^(-ωt)，由调用者计算以便和速度共用
+     */
+    static float springDisplacement(float x0, float v0, float omega, float t, float decay) {
+        return (x0 + (v0 + omega * x0) * t) * decay;
+    }
+
+    /**
+     * 临界阻尼弹簧t秒后的速度：v(t) = (v0 - ω(v0 + ωx0)t)e^(-ωt)
+     */
+    static float springVelocity(float x0, float v0, float omega, float t, float decay) {
+        return (v0 - omega * (v0 + omega * x0) * t) * decay;
+    }
+}
@@ -0,0 +1,74 @@
+package com.xlf.nrl;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RadialGradient;
+import android.graphics.Shader;
+import android.support.v4.util.LruCache;
+
+/**
+ * API 21以下进度条和FlatLoadView的圆形背景和阴影，只绘制一次保存为位图，进程内所有进度条共用。
+ * 以直径、阴影半径和背景色为键，避免每个进度条开启软件层并在每一帧重新绘制模糊阴影。
+ */
+final class ShadowBitmapCache {
+
+    private static final int KEY_SHADOW_COLOR = 0x1E000000;
+    private static final int FILL_SHADOW_COLOR = 0x3D000000;
+    /**
+     * 缓存占用内存的上限（字节）
+     */
+    private static final int MAX_CACHE_BYTES = 512 * 1024;
+
+    private static final LruCache<Long, Bitmap> sCache = new LruCache<Long, Bitmap>(MAX_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(Long key, Bitmap value) {
+            return value.getRowBytes() * value.getHeight();
+        }
+    };
+
+    private ShadowBitmapCache() {
+    }
+
+    /**
+     * @param diameter     位图边长，即进度条的直径（包括阴影）
+     * @param shadowRadius 阴影半径
+     * @param shadowXOffset 阴影横向偏移
+     * @param shadowYOffset 阴影纵向偏移
+     * @param color        背景色
+     */
+    static Bitmap get(int diameter, int shadowRadius, int shadowXOffset, int shadowYOffset,
+                      int color) {
+        final Long key = ((long) (diameter & 0xFFFF) << 48) | ((long) (shadowRadius & 0xFFFF) << 32)
+                | (color & 0xFFFFFFFFL);
+        Bitmap bitmap = sCache.get(key);
+        if (bitmap == null) {
+            bitmap = render(diameter, shadowRadius, shadowXOffset, shadowYOffset, color);
+            sCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    private static Bitmap render(int diameter, int shadowRadius, int shadowXOffset,
+                                 int shadowYOffset, int color) {
+        final Bitmap bitmap = Bitmap.createBitmap(diameter, diameter, Bitmap.Config.ARGB_8888);
+        //位图画布是软件绘制，阴影层在所有版本上都有效
+        final Canvas canvas = new Canvas(bitmap);
+        final int circleDiameter = diameter - shadowRadius * 2;
+        final float center = diameter / 2;
+
+        final Paint shadowPaint = new Paint();
+        shadowPaint.setShader(new RadialGradient(circleDiameter / 2, circleDiameter / 2,
+                shadowRadius, new int[]{
+                FILL_SHADOW_COLOR, Color.TRANSPARENT
+        }, null, Shader.TileMode.CLAMP));
+        canvas.drawCircle(center, center, circleDiameter / 2 + shadowRadius, shadowPaint);
+
+        final Paint circlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        circlePaint.setColor(color);
+        circlePaint.setShadowLayer(shadowRadius, shadowXOffset, shadowYOffset, KEY_SHADOW_COLOR);
+        canvas.drawCircle(center, center, circleDiameter / 2, circlePaint);
+        return bitmap;
+    }
+}
@@ -0,0 +1,149 @@
+package com.xlf.nrl;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+
+/**
+ * 预先绘制好的进度圆弧，每帧按弧长选一张用drawBitmap绘制，代替逐帧的矢量绘制。
+ * 圆弧以Alpha8保存，颜色由绘制时的Paint决定，同样尺寸的进度条（如头部和底部）共用一份。
+ */
+final class SpinnerFrameAtlas {
+
+    /**
+     * 一圈的帧数，相邻两帧的弧长相差360/FRAME_COUNT度
+     */
+    static final int FRAME_COUNT = 36;
+    private static final int COLUMNS = 6;
+    private static final float DEGREES_PER_FRAME = 360f / FRAME_COUNT;
+    /**
+     * 所有图集占用内存的默认上限（字节）
+     */
+    static final int DEFAULT_MEMORY_CAP = 1024 * 1024;
+
+    private static final ArrayList<SpinnerFrameAtlas> sAtlases = new ArrayList<SpinnerFrameAtlas>();
+    private static int sMemoryCap = DEFAULT_MEMORY_CAP;
+    private static int sMemoryUsed;
+
+    private final int mWidth;
+    private final int mHeight;
+    private final float mStrokeWidth;
+    private final float mStrokeInset;
+    private final Bitmap mBitmap;
+    private final int mByteCount;
+    private final Rect mSrc = new Rect();
+    private int mRefCount;
+
+    private SpinnerFrameAtlas(int width, int height, float strokeWidth, float strokeInset) {
+        mWidth = width;
+        mHeight = height;
+        mStrokeWidth = strokeWidth;
+        mStrokeInset = strokeInset;
+        final int rows = (FRAME_COUNT + COLUMNS - 1) / COLUMNS;
+        mBitmap = Bitmap.createBitmap(width * COLUMNS, height * rows, Bitmap.Config.ALPHA_8);
+        mByteCount = mBitmap.getRowBytes() * mBitmap.getHeight();
+        render();
+    }
+
+    /**
+     * 设置所有图集占用内存的上限，超过时不再创建新的图集，改用矢量绘制
+     */
+    static void setMemoryCap(int bytes) {
+        sMemoryCap = bytes;
+    }
+
+    /**
+     * 获取指定尺寸的图集，引用计数加一
+     *
+     * @return 超过内存上限或尺寸无效时返回null
+     */
+    static SpinnerFrameAtlas obtain(int width, int height, float strokeWidth, float strokeInset) {
+        for (int i = 0; i < sAtlases.size(); i++) {
+            SpinnerFrameAtlas atlas = sAtlases.get(i);
+            if (atlas.matches(width, height, strokeWidth, strokeInset)) {
+                atlas.mRefCount++;
+                return atlas;
+            }
+        }
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        final int rows = (FRAME_COUNT + COLUMNS - 1) / COLUMNS;
+        //Alpha8每个像素一个字节，创建前先估算，行宽按4字节对齐
+        final long estimate = (long) ((width * COLUMNS + 3) & ~3) * height * rows;
+        if (sMemoryUsed + estimate > sMemoryCap) {
+            return null;
+        }
+        SpinnerFrameAtlas atlas;
+        try {
+            atlas = new SpinnerFrameAtlas(width, height, strokeWidth, strokeInset);
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
+        atlas.mRefCount = 1;
+        sAtlases.add(atlas);
+        sMemoryUsed += atlas.mByteCount;
+        return atlas;
+    }
+
+    /**
+     * 引用计数减一，没有使用者时回收
+     */
+    void release() {
+        if (--mRefCount > 0) {
+            return;
+        }
+        sAtlases.remove(this);
+        sMemoryUsed -= mByteCount;
+        mBitmap.recycle();
+    }
+
+    boolean matches(int width, int height, float strokeWidth, float strokeInset) {
+        return mWidth == width && mHeight == height
+                && mStrokeWidth == strokeWidth && mStrokeInset == strokeInset;
+    }
+
+    private void render() {
+        final Canvas canvas = new Canvas(mBitmap);
+        final Paint paint = new Paint();
+        paint.setStrokeCap(Paint.Cap.SQUARE);
+        paint.setAntiAlias(true);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(mStrokeWidth);
+        final RectF arcBounds = new RectF();
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            final int left = (i % COLUMNS) * mWidth;
+            final int top = (i / COLUMNS) * mHeight;
+            arcBounds.set(left, top, left + mWidth, top + mHeight);
+            arcBounds.inset(mStrokeInset, mStrokeInset);
+            canvas.drawArc(arcBounds, 0, i * DEGREES_PER_FRAME, false, paint);
+        }
+    }
+
+    /**
+     * 绘制从startAngle开始、弧长为sweepAngle的圆弧，弧长取最接近的一帧
+     */
+    void drawArc(Canvas c, Rect bounds, float startAngle, float sweepAngle, Paint paint) {
+        float baseAngle = startAngle;
+        if (sweepAngle < 0) {
+            baseAngle += sweepAngle;
+            sweepAngle = -sweepAngle;
+        }
+        int frame = (int) (sweepAngle / DEGREES_PER_FRAME + 0.5f);
+        if (frame >= FRAME_COUNT) {
+            frame = FRAME_COUNT - 1;
+        }
+        final int left = (frame % COLUMNS) * mWidth;
+        final int top = (frame / COLUMNS) * mHeight;
+        mSrc.set(left, top, left + mWidth, top + mHeight);
+
+        final int saveCount = c.save();
+        c.rotate(baseAngle, bounds.exactCenterX(), bounds.exactCenterY());
+        c.drawBitmap(mBitmap, mSrc, bounds, paint);
+        c.restoreToCount(saveCount);
+    }
+}
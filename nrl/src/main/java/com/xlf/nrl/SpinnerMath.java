@@ -0,0 +1,125 @@
+package com.xlf.nrl;
+
+/**
+ * 进度条旋转动画中圆弧首尾和旋转角度的纯计算，不依赖Android类，可以直接在JVM上做基准测试。
+ * 结果写入调用者提供的数组，不分配对象；曲线查表计算，每帧没有double三角函数。
+ */
+final class SpinnerMath {
+
+    static final int START_TRIM = 0;
+    static final int END_TRIM = 1;
+    static final int ROTATION = 2;
+    static final int GROUP_ROTATION = 3;
+    /**
+     * 结果数组的长度
+     */
+    static final int FRAME_SIZE = 4;
+
+    private static final float MAX_PROGRESS_ARC = .8f;
+    /**
+     * The number of points in the progress "star".
+     */
+    private static final float NUM_POINTS = 5f;
+    /**
+     * 加速减速曲线的分段数，线性插值的误差小于1e-5
+     */
+    private static final int CURVE_SEGMENTS = 256;
+    private static final float[] ACCELERATE_DECELERATE = new float[CURVE_SEGMENTS + 1];
+
+    static {
+        for (int i = 0; i <= CURVE_SEGMENTS; i++) {
+            ACCELERATE_DECELERATE[i] =
+                    (float) (1 - Math.cos(i * Math.PI / CURVE_SEGMENTS)) / 2.0f;
+        }
+    }
+
+    private SpinnerMath() {
+    }
+
+    /**
+     * 与线宽对应的最小圆弧，只在尺寸变化时计算
+     */
+    static float minProgressArc(float strokeWidth, double centerRadius) {
+        return centerRadius > 0 ? (float) Math.toRadians(
+                strokeWidth / (2 * Math.PI * centerRadius)) : 0;
+    }
+
+    /**
+     * 收起圆弧时要转到的位置
+     */
+    static float finishTargetRotation(float startingRotation) {
+        return (float) (Math.floor(startingRotation / MAX_PROGRESS_ARC) + 1f);
+    }
+
+    /**
+     * 旋转动画一帧的圆弧首尾、圆弧旋转和整体旋转
+     *
+     * @param interpolatedTime 这一圈的进度，[0..1]
+     * @param out              长度为{@link #FRAME_SIZE}的结果数组
+     */
+    static void progressFrame(float interpolatedTime, float startingStartTrim,
+                              float startingEndTrim, float startingRotation,
+                              float minProgressArc, float rotationCount, float[] out) {
+        // Offset the minProgressArc to where the endTrim is
+        // located.
+        final float minArc = MAX_PROGRESS_ARC - minProgressArc;
+        float endTrim = startingEndTrim + (minArc * startCurve(interpolatedTime));
+        final float startTrim = startingStartTrim + (MAX_PROGRESS_ARC * endCurve(interpolatedTime));
+
+        final float sweepTrim = endTrim - startTrim;
+        //Avoid the ring to be a full circle
+        if (Math.abs(sweepTrim) >= 1) {
+            endTrim = startTrim + 0.5f;
+        }
+
+        out[START_TRIM] = startTrim;
+        out[END_TRIM] = endTrim;
+        out[ROTATION] = startingRotation + (0.25f * interpolatedTime);
+        out[GROUP_ROTATION] = ((720.0f / NUM_POINTS) * interpolatedTime)
+                + (720.0f * (rotationCount / NUM_POINTS));
+    }
+
+    /**
+     * 收起手势留下的圆弧并转完一圈，只修改{@link #START_TRIM}和{@link #ROTATION}
+     */
+    static void finishFrame(float interpolatedTime, float startingStartTrim,
+                            float startingEndTrim, float startingRotation,
+                            float targetRotation, float[] out) {
+        out[START_TRIM] = startingStartTrim
+                + (startingEndTrim - startingStartTrim) * interpolatedTime;
+        out[ROTATION] = startingRotation
+                + ((targetRotation - startingRotation) * interpolatedTime);
+    }
+
+    /**
+     * 先加速后减速，与AccelerateDecelerateInterpolator相同，查表后线性插值
+     *
+     * @param input [0..1]，超出范围时按边界计算
+     */
+    static float accelerateDecelerate(float input) {
+        if (input <= 0) {
+            return 0;
+        }
+        if (input >= 1) {
+            return 1;
+        }
+        final float position = input * CURVE_SEGMENTS;
+        final int index = (int) position;
+        final float low = ACCELERATE_DECELERATE[index];
+        return low + (ACCELERATE_DECELERATE[index + 1] - low) * (position - index);
+    }
+
+    /**
+     * Squishes the interpolation curve into the first half of the animation.
+     */
+    static float startCurve(float input) {
+        return accelerateDecelerate(Math.min(1, input * 2.0f));
+    }
+
+    /**
+     * Squishes the interpolation curve into the second half of the animation.
+     */
+    static float endCurve(float input) {
+        return accelerateDecelerate(Math.max(0, (input - 0.5f) * 2.0f));
+    }
+}
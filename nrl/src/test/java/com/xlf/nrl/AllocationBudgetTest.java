@@ -0,0 +1,148 @@
+package com.xlf.nrl;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.xlf.nrl.RefreshLayoutFixture.FRAME_MS;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 拖动、回弹和进度条绘制每一帧的内存分配预算。
+ * 通过{@link AllocationCounter}统计，预算包括Robolectric影子类自身的开销，
+ * 可以用系统属性nrl.allocBudget.move/settle/draw（字节）调整。
+ * 每帧格式化字符串、重建Path或背景、创建动画对象都会超出预算。
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class AllocationBudgetTest {
+
+    private static final int WARMUP = 20;
+    private static final int SAMPLES = 200;
+
+    private static final long MOVE_BUDGET = Long.getLong("nrl.allocBudget.move", 512);
+    private static final long SETTLE_BUDGET = Long.getLong("nrl.allocBudget.settle", 512);
+    private static final long DRAW_BUDGET = Long.getLong("nrl.allocBudget.draw", 512);
+
+    private RefreshLayoutFixture fixture;
+    private NsRefreshLayout refreshLayout;
+    private AllocationCounter counter;
+
+    @Before
+    public void setUp() {
+        assumeTrue(AllocationCounter.isSupported());
+        counter = new AllocationCounter();
+        fixture = new RefreshLayoutFixture();
+        refreshLayout = fixture.layout;
+    }
+
+    @Test
+    public void dragMoveStaysWithinBudget() {
+        float y = 100;
+        dispatchAndRecycle(fixture.obtain(MotionEvent.ACTION_DOWN, y));
+        //先拖过触摸阈值并露出一部分加载视图
+        for (int i = 0; i < WARMUP; i++) {
+            y += 4;
+            dispatchAndRecycle(fixture.obtain(MotionEvent.ACTION_MOVE, y));
+            ShadowLooper.idleMainLooper(FRAME_MS);
+        }
+
+        //事件提前创建，只统计分发和下一帧应用拖动距离的分配；上下来回拖动，露出高度不会停在边界
+        MotionEvent[] moves = new MotionEvent[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            y += (i / 10) % 2 == 0 ? 3 : -3;
+            moves[i] = fixture.obtain(MotionEvent.ACTION_MOVE, y);
+        }
+        long total = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = allocatedBytes();
+            refreshLayout.dispatchTouchEvent(moves[i]);
+            ShadowLooper.idleMainLooper(FRAME_MS);
+            total += allocatedBytes() - start;
+        }
+        for (MotionEvent move : moves) {
+            move.recycle();
+        }
+        dispatchAndRecycle(fixture.obtain(MotionEvent.ACTION_UP, y));
+
+        AllocationCounter.assertWithinBudget("ACTION_MOVE", total / SAMPLES, MOVE_BUDGET);
+    }
+
+    @Test
+    public void settleFrameStaysWithinBudget() {
+        float y = 100;
+        dispatchAndRecycle(fixture.obtain(MotionEvent.ACTION_DOWN, y));
+        for (int i = 0; i < 40; i++) {
+            y += 10;
+            dispatchAndRecycle(fixture.obtain(MotionEvent.ACTION_MOVE, y));
+            ShadowLooper.idleMainLooper(FRAME_MS);
+        }
+        dispatchAndRecycle(fixture.obtain(MotionEvent.ACTION_UP, y));
+
+        //只统计回弹中间的帧，最后一帧开始刷新的一次性开销不计入
+        NsRefreshLayout.SettleAnimator animator = refreshLayout.headerSettleAnimator;
+        long total = 0;
+        int frames = 0;
+        while (animator.isRunning() && frames < SAMPLES) {
+            long start = allocatedBytes();
+            ShadowLooper.idleMainLooper(FRAME_MS);
+            long allocated = allocatedBytes() - start;
+            if (animator.isRunning()) {
+                total += allocated;
+                frames++;
+            }
+        }
+
+        assertTrue("no settle frames recorded", frames > 0);
+        AllocationCounter.assertWithinBudget("settle frame", total / frames, SETTLE_BUDGET);
+    }
+
+    @Test
+    public void spinnerDrawStaysWithinBudget() {
+        MaterialProgressDrawable drawable =
+                new MaterialProgressDrawable(RuntimeEnvironment.application);
+        drawable.setSizeParameters(120, 120, 30, 9, 36, 18);
+        drawable.setBounds(0, 0, 120, 120);
+        drawable.setColorSchemeColors(Color.RED);
+        drawable.setAlpha(255);
+        drawable.showArrow(true);
+        drawable.setArrowScale(1f);
+        drawable.setStartEndTrim(0, 0.75f);
+        Bitmap bitmap = Bitmap.createBitmap(120, 120, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        for (int i = 0; i < WARMUP; i++) {
+            drawable.setProgressRotation(i / (float) WARMUP);
+            drawable.draw(canvas);
+        }
+        //每次绘制都改变旋转，箭头需要重新变换
+        long total = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            drawable.setProgressRotation(i / (float) SAMPLES);
+            long start = allocatedBytes();
+            drawable.draw(canvas);
+            total += allocatedBytes() - start;
+        }
+
+        AllocationCounter.assertWithinBudget("Ring.draw", total / SAMPLES, DRAW_BUDGET);
+    }
+
+    private long allocatedBytes() {
+        return counter.allocatedBytes();
+    }
+
+    private void dispatchAndRecycle(MotionEvent event) {
+        refreshLayout.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
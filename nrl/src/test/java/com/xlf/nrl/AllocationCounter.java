@@ -0,0 +1,44 @@
+package com.xlf.nrl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 统计当前线程分配的字节数，基于HotSpot的线程分配计数。
+ * 统计结果包括Robolectric影子类（消息调度、Canvas记录等）自身的开销
+ */
+class AllocationCounter {
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final long threadId;
+
+    /**
+     * @return 当前JVM是否支持线程分配计数，不支持时应跳过预算断言
+     */
+    static boolean isSupported() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported();
+    }
+
+    AllocationCounter() {
+        threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        threadId = Thread.currentThread().getId();
+        //第一次调用的开销不计入
+        allocatedBytes();
+    }
+
+    /**
+     * @return 当前线程到目前为止分配的字节数
+     */
+    long allocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(threadId);
+    }
+
+    static void assertWithinBudget(String what, long perOp, long budget) {
+        assertTrue(what + " allocated " + perOp + " bytes, budget " + budget, perOp <= budget);
+    }
+}
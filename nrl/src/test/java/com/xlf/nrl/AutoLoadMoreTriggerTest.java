@@ -0,0 +1,145 @@
+package com.xlf.nrl;
+
+import android.app.Activity;
+import android.content.Context;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+import android.widget.ScrollView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 内容视图随父容器反复附加和分离窗口时，滚动监听只注册一次并且能被注销；
+ * 提前加载在没有新内容时不重复触发
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class AutoLoadMoreTriggerTest {
+
+    private Activity activity;
+    private HostLayout host;
+    private int checkCount;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(Activity.class);
+        host = new HostLayout(activity);
+    }
+
+    @Test
+    public void attachDetachTwiceRegistersOnce() {
+        ViewGroup parent = (ViewGroup) activity.findViewById(android.R.id.content);
+        ViewTreeObserver observer = parent.getViewTreeObserver();
+        int baseline = scrollChangedListenerCount(observer);
+
+        for (int i = 0; i < 2; i++) {
+            parent.addView(host);
+            assertTrue(ViewCompat.isAttachedToWindow(host));
+            assertEquals(baseline + 1, scrollChangedListenerCount(observer));
+            parent.removeView(host);
+            assertEquals(baseline, scrollChangedListenerCount(observer));
+        }
+
+        parent.addView(host);
+        dispatchScrollChanged(observer);
+        assertEquals(1, checkCount);
+        parent.removeView(host);
+        dispatchScrollChanged(observer);
+        assertEquals(1, checkCount);
+    }
+
+    @Test
+    public void prefetchRearmsOnlyAfterContentGrowsOrScrollsAway() {
+        ScrollView scrollView = new ScrollView(activity);
+        View child = new View(activity);
+        scrollView.addView(child);
+        layout(scrollView, child, 2000);
+        AutoLoadMoreTrigger trigger = new AutoLoadMoreTrigger(new FrameLayout(activity), null);
+        trigger.attach(scrollView);
+
+        //距离底部50像素，在100像素的提前加载范围内
+        scrollView.scrollTo(0, 1150);
+        assertTrue(trigger.shouldPrefetch(0, 100));
+        //没有新内容，继续滚动不再触发
+        assertFalse(trigger.shouldPrefetch(0, 100));
+        scrollView.scrollTo(0, 1160);
+        assertFalse(trigger.shouldPrefetch(0, 100));
+
+        //内容增加后再次触发
+        layout(scrollView, child, 2040);
+        assertTrue(trigger.shouldPrefetch(0, 100));
+        assertFalse(trigger.shouldPrefetch(0, 100));
+
+        //滚出提前加载的范围后再滚回来也会触发
+        scrollView.scrollTo(0, 0);
+        assertFalse(trigger.shouldPrefetch(0, 100));
+        scrollView.scrollTo(0, 1200);
+        assertTrue(trigger.shouldPrefetch(0, 100));
+    }
+
+    private static void layout(ScrollView scrollView, View child, int childHeight) {
+        child.setMinimumHeight(childHeight);
+        scrollView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        scrollView.layout(0, 0, 480, 800);
+    }
+
+    private void dispatchScrollChanged(ViewTreeObserver observer) {
+        ReflectionHelpers.callInstanceMethod(observer, "dispatchOnScrollChanged");
+        ShadowLooper.idleMainLooper(16);
+    }
+
+    private static int scrollChangedListenerCount(ViewTreeObserver observer) {
+        Object listeners = ReflectionHelpers.getField(observer, "mOnScrollChangedListeners");
+        if (listeners == null) {
+            return 0;
+        }
+        return ReflectionHelpers.<Integer>callInstanceMethod(listeners, "size");
+    }
+
+    /**
+     * 与NsRefreshLayout相同的时机调用attach和detach
+     */
+    private class HostLayout extends FrameLayout {
+        private final View content;
+        private final AutoLoadMoreTrigger trigger = new AutoLoadMoreTrigger(this,
+                new AutoLoadMoreTrigger.Callback() {
+                    @Override
+                    public void onCheckLoadMore() {
+                        checkCount++;
+                    }
+                });
+
+        HostLayout(Context context) {
+            super(context);
+            content = new View(context);
+            addView(content);
+        }
+
+        @Override
+        protected void onAttachedToWindow() {
+            super.onAttachedToWindow();
+            trigger.attach(content);
+        }
+
+        @Override
+        protected void onDetachedFromWindow() {
+            trigger.detach();
+            super.onDetachedFromWindow();
+        }
+    }
+}
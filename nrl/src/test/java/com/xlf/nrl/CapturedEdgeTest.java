@@ -0,0 +1,77 @@
+package com.xlf.nrl;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.ScrollView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.xlf.nrl.RefreshLayoutFixture.FRAME_MS;
+import static com.xlf.nrl.RefreshLayoutFixture.HEIGHT;
+import static com.xlf.nrl.RefreshLayoutFixture.SETTLE_IDLE_MS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按下时停住正在回弹的上拉加载视图：只有露出方向的手势或内容视图不能滚动时才由手势接管，
+ * 已经触发的加载不论松手位置都会回调onLoadMore
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CapturedEdgeTest {
+
+    private static final int CONTENT_HEIGHT = 2000;
+
+    private RefreshLayoutFixture fixture;
+    private NsRefreshLayout refreshLayout;
+
+    private void setUp(View content) {
+        fixture = new RefreshLayoutFixture(new NsRefreshLayout(RuntimeEnvironment.application),
+                content);
+        refreshLayout = fixture.layout;
+        fixture.setAutoLoadMore(true);
+    }
+
+    @Test
+    public void scrollingContentAwayKeepsSettling() {
+        Context context = RuntimeEnvironment.application;
+        ScrollView scrollView = new ScrollView(context);
+        View child = new View(context);
+        child.setMinimumHeight(CONTENT_HEIGHT);
+        scrollView.addView(child);
+        setUp(scrollView);
+        int bottom = CONTENT_HEIGHT - HEIGHT;
+        scrollView.scrollTo(0, bottom);
+
+        //滚动到底部自动加载，上拉加载视图开始回弹
+        refreshLayout.checkAutoLoadMore();
+        ShadowLooper.idleMainLooper(FRAME_MS);
+        assertTrue(refreshLayout.footerSettleAnimator.isRunning());
+
+        //按下停住回弹，向下滑动是在滚动内容视图，不拖动上拉加载视图
+        fixture.up(fixture.drag(100, 10, 20));
+        assertTrue(scrollView.getScrollY() < bottom);
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertEquals(1, fixture.loadMoreCount);
+        assertTrue(refreshLayout.isLoadingMore());
+    }
+
+    @Test
+    public void collapsedCapturedLoadStillDispatches() {
+        setUp(new View(RuntimeEnvironment.application));
+        refreshLayout.checkAutoLoadMore();
+        ShadowLooper.idleMainLooper(FRAME_MS);
+        assertTrue(refreshLayout.footerSettleAnimator.isRunning());
+
+        //内容视图不能滚动，由手势接管并完全收起后松手
+        fixture.up(fixture.drag(100, 20, 20));
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertEquals(1, fixture.loadMoreCount);
+        assertTrue(refreshLayout.isLoadingMore());
+    }
+}
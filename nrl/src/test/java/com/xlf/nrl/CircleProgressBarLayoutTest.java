@@ -0,0 +1,113 @@
+package com.xlf.nrl;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 尺寸和配置都没有变化时，重复布局不再重建背景和进度Drawable，也不分配内存。
+ * 每次布局的分配预算可以用系统属性nrl.allocBudget.layout（字节）调整
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CircleProgressBarLayoutTest {
+
+    private static final int SIZE = 120;
+    private static final int PASSES = 100;
+    private static final int WARMUP = 10;
+    private static final long LAYOUT_BUDGET = Long.getLong("nrl.allocBudget.layout", 512);
+
+    private CircleProgressBar progressBar;
+    private CountingProgressDrawable progressDrawable;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        progressBar = new CircleProgressBar(context);
+        progressDrawable = new CountingProgressDrawable(context);
+        progressBar.mProgressDrawable = progressDrawable;
+        layoutPass();
+    }
+
+    @Test
+    public void unchangedLayoutPassDoesNotRebuild() {
+        Drawable background = progressBar.getBackground();
+        Drawable image = progressBar.getDrawable();
+        assertNotNull(background);
+        assertSame(progressDrawable, image);
+        int sizeUpdates = progressDrawable.sizeUpdates;
+
+        for (int i = 0; i < PASSES; i++) {
+            progressBar.forceLayout();
+            layoutPass();
+        }
+
+        assertSame(background, progressBar.getBackground());
+        assertSame(image, progressBar.getDrawable());
+        assertEquals(sizeUpdates, progressDrawable.sizeUpdates);
+    }
+
+    @Test
+    public void unchangedLayoutPassStaysWithinBudget() {
+        assumeTrue(AllocationCounter.isSupported());
+        AllocationCounter counter = new AllocationCounter();
+        for (int i = 0; i < WARMUP; i++) {
+            progressBar.forceLayout();
+            layoutPass();
+        }
+
+        long start = counter.allocatedBytes();
+        for (int i = 0; i < PASSES; i++) {
+            progressBar.forceLayout();
+            layoutPass();
+        }
+        long total = counter.allocatedBytes() - start;
+
+        AllocationCounter.assertWithinBudget("layout pass", total / PASSES, LAYOUT_BUDGET);
+    }
+
+    @Test
+    public void configChangeRebuildsOnce() {
+        int sizeUpdates = progressDrawable.sizeUpdates;
+        progressBar.setProgressStokeWidth(4);
+        layoutPass();
+        layoutPass();
+        assertEquals(sizeUpdates + 1, progressDrawable.sizeUpdates);
+    }
+
+    private void layoutPass() {
+        progressBar.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        progressBar.layout(0, 0, SIZE, SIZE);
+    }
+
+    private static class CountingProgressDrawable extends MaterialProgressDrawable {
+
+        int sizeUpdates;
+
+        CountingProgressDrawable(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void setSizeParameters(double progressCircleWidth, double progressCircleHeight,
+                                      double centerRadius, double strokeWidth, float arrowWidth,
+                                      float arrowHeight) {
+            sizeUpdates++;
+            super.setSizeParameters(progressCircleWidth, progressCircleHeight, centerRadius,
+                    strokeWidth, arrowWidth, arrowHeight);
+        }
+    }
+}
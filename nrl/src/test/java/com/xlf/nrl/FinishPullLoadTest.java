@@ -0,0 +1,53 @@
+package com.xlf.nrl;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.xlf.nrl.RefreshLayoutFixture.SETTLE_IDLE_MS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 自动加载更多的回弹还没结束时完成加载，回弹停止且不再回调onLoadMore
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class FinishPullLoadTest {
+
+    private RefreshLayoutFixture fixture;
+    private NsRefreshLayout refreshLayout;
+
+    @Before
+    public void setUp() {
+        fixture = new RefreshLayoutFixture();
+        refreshLayout = fixture.layout;
+        fixture.setAutoLoadMore(true);
+    }
+
+    @Test
+    public void finishWhileSettlingStopsSettle() {
+        //内容视图不能滚动，直接开始回弹到加载高度，此时还没有露出
+        refreshLayout.checkAutoLoadMore();
+        assertTrue(refreshLayout.isLoadingMore());
+        assertTrue(refreshLayout.footerSettleAnimator.isRunning());
+
+        refreshLayout.finishPullLoad();
+        assertFalse(refreshLayout.isLoadingMore());
+        assertFalse(refreshLayout.footerSettleAnimator.isRunning());
+
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertEquals(0, fixture.loadMoreCount);
+        assertFalse(refreshLayout.isLoadingMore());
+        assertEquals(0, fixture.content.getTranslationY(), 0.01f);
+        View footerView = refreshLayout.getChildAt(refreshLayout.getChildCount() - 1);
+        assertTrue(footerView instanceof LoadView);
+        assertEquals(View.INVISIBLE, footerView.getVisibility());
+    }
+}
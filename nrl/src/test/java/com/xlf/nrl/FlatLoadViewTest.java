@@ -0,0 +1,77 @@
+package com.xlf.nrl;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import static com.xlf.nrl.RefreshLayoutFixture.SETTLE_IDLE_MS;
+import static com.xlf.nrl.RefreshLayoutFixture.WIDTH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 使用FlatLoadView作为默认加载视图时完成一次刷新，切换状态和显示进度都不重新布局
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class FlatLoadViewTest {
+
+    private RefreshLayoutFixture fixture;
+    private NsRefreshLayout refreshLayout;
+
+    @Before
+    public void setUp() {
+        fixture = new RefreshLayoutFixture();
+        refreshLayout = fixture.layout;
+        refreshLayout.setFlatLoadViewEnabled(true);
+    }
+
+    @Test
+    public void refreshWithFlatLoadView() {
+        fixture.pullToRefresh();
+        View headerView = refreshLayout.getChildAt(1);
+        assertTrue(headerView instanceof FlatLoadView);
+        assertEquals(WIDTH, headerView.getWidth());
+
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertEquals(1, fixture.refreshCount);
+        refreshLayout.setRefreshProgress(42);
+        assertFalse(headerView.isLayoutRequested());
+
+        Bitmap bitmap = Bitmap.createBitmap(WIDTH, headerView.getHeight(),
+                Bitmap.Config.ARGB_8888);
+        headerView.draw(new Canvas(bitmap));
+
+        refreshLayout.finishPullRefresh();
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertFalse(refreshLayout.isRefreshing());
+        assertEquals(View.INVISIBLE, headerView.getVisibility());
+    }
+
+    @Test
+    public void elevationShadowFlagAppliesFromLollipop() {
+        refreshLayout.setProgressElevationShadowEnabled(false);
+        fixture.pullToRefresh();
+        assertNull(ReflectionHelpers.getField(refreshLayout.getChildAt(1), "mShadowBitmap"));
+    }
+
+    @Test
+    @Config(sdk = 19)
+    public void elevationShadowAlwaysDrawnBeforeLollipop() {
+        refreshLayout.setProgressElevationShadowEnabled(false);
+        fixture.pullToRefresh();
+        //与LoadView一致，API 21以下没有elevation，始终使用位图阴影
+        assertNotNull(ReflectionHelpers.getField(refreshLayout.getChildAt(1), "mShadowBitmap"));
+    }
+}
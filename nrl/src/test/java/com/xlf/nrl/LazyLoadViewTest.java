@@ -0,0 +1,122 @@
+package com.xlf.nrl;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.xlf.nrl.RefreshLayoutFixture.HEIGHT;
+import static com.xlf.nrl.RefreshLayoutFixture.SETTLE_IDLE_MS;
+import static com.xlf.nrl.RefreshLayoutFixture.WIDTH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 加载视图延迟到第一次手势时创建，创建时不请求整个控件重新布局。
+ * 支持线程分配计数时同时比较延迟创建和加载布局时就创建两个加载视图的分配
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class LazyLoadViewTest {
+
+    private static final int WARMUP = 5;
+    private static final int SAMPLES = 50;
+
+    private RefreshLayoutFixture fixture;
+    private NsRefreshLayout refreshLayout;
+
+    @Before
+    public void setUp() {
+        fixture = new RefreshLayoutFixture();
+        refreshLayout = fixture.layout;
+    }
+
+    @Test
+    public void inflateDoesNotCreateLoadViews() {
+        assertEquals(1, refreshLayout.getChildCount());
+    }
+
+    @Test
+    public void firstPullCreatesLaidOutLoadViews() {
+        fixture.pullToRefresh();
+        //内容视图不能滚动，按下时两个方向的加载视图都可能被拖出
+        assertEquals(3, refreshLayout.getChildCount());
+        assertFalse(refreshLayout.isLayoutRequested());
+        View headerView = refreshLayout.getChildAt(1);
+        assertTrue(headerView instanceof LoadView);
+        assertEquals(WIDTH, headerView.getWidth());
+        assertEquals(0, headerView.getTop());
+        View footerView = refreshLayout.getChildAt(2);
+        assertTrue(footerView instanceof LoadView);
+        assertEquals(HEIGHT, footerView.getBottom());
+
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertEquals(1, fixture.refreshCount);
+        assertEquals(View.VISIBLE, headerView.getVisibility());
+        assertEquals(View.INVISIBLE, footerView.getVisibility());
+    }
+
+    @Test
+    public void disabledEdgesAreNeverCreated() {
+        refreshLayout.setRefreshLayoutController(new NsRefreshLayout.NsRefreshLayoutController() {
+            @Override
+            public boolean isPullRefreshEnable() {
+                return false;
+            }
+
+            @Override
+            public boolean isPullLoadEnable() {
+                return false;
+            }
+        });
+        fixture.pullToRefresh();
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertEquals(1, refreshLayout.getChildCount());
+        assertEquals(0, fixture.refreshCount);
+    }
+
+    @Test
+    public void lazyInflateAllocatesLess() {
+        assumeTrue(AllocationCounter.isSupported());
+        AllocationCounter counter = new AllocationCounter();
+        //前几次包括类加载和资源解析等一次性开销，不计入
+        for (int i = 0; i < WARMUP; i++) {
+            inflate(false);
+            inflate(true);
+        }
+        long lazy = 0;
+        long eager = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = counter.allocatedBytes();
+            inflate(false);
+            lazy += counter.allocatedBytes() - start;
+            start = counter.allocatedBytes();
+            inflate(true);
+            eager += counter.allocatedBytes() - start;
+        }
+        lazy /= SAMPLES;
+        eager /= SAMPLES;
+        assertTrue("lazy " + lazy + " B >= eager " + eager + " B", lazy < eager);
+    }
+
+    /**
+     * 创建、测量并布局一个控件
+     *
+     * @param eager 是否像延迟创建之前一样在布局前就创建两个加载视图
+     */
+    private static void inflate(boolean eager) {
+        RefreshLayoutFixture fixture = new RefreshLayoutFixture();
+        if (eager) {
+            fixture.layout.ensureHeaderView();
+            fixture.layout.ensureFooterView();
+            fixture.layoutPass();
+            assertEquals(3, fixture.layout.getChildCount());
+        }
+    }
+}
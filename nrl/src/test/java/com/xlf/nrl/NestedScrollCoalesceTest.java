@@ -0,0 +1,68 @@
+package com.xlf.nrl;
+
+import android.content.Context;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.xlf.nrl.RefreshLayoutFixture.FINAL_HEIGHT;
+import static com.xlf.nrl.RefreshLayoutFixture.FRAME_MS;
+import static com.xlf.nrl.RefreshLayoutFixture.OVER_HEIGHT;
+import static com.xlf.nrl.RefreshLayoutFixture.SETTLE_IDLE_MS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 嵌套滑动的距离和触摸拖动一样合并到下一帧应用，松手时先应用剩余的距离
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class NestedScrollCoalesceTest {
+
+    private RefreshLayoutFixture fixture;
+    private NsRefreshLayout refreshLayout;
+    private View content;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        fixture = new RefreshLayoutFixture(new NsRefreshLayout(context), new View(context));
+        refreshLayout = fixture.layout;
+        content = fixture.content;
+    }
+
+    @Test
+    public void nestedScrollAppliesOncePerFrame() {
+        refreshLayout.onNestedScrollAccepted(content, content, ViewCompat.SCROLL_AXIS_VERTICAL);
+        //一帧内多次嵌套滑动，超过回弹高度的部分被截断
+        for (int i = 0; i < 20; i++) {
+            refreshLayout.onNestedScroll(content, 0, 0, 0, -10);
+        }
+        assertEquals(0, content.getTranslationY(), 0.01f);
+        ShadowLooper.idleMainLooper(FRAME_MS);
+        assertEquals(OVER_HEIGHT, content.getTranslationY(), 0.01f);
+
+        //反方向的滑动先收起下拉刷新视图，消耗的距离立即返回
+        int[] consumed = new int[2];
+        refreshLayout.onNestedPreScroll(content, 0, 50, consumed);
+        assertEquals(50, consumed[1]);
+        assertEquals(OVER_HEIGHT, content.getTranslationY(), 0.01f);
+        consumed[1] = 0;
+        refreshLayout.onNestedPreScroll(content, 0, 30, consumed);
+        assertEquals(30, consumed[1]);
+
+        //还没到下一帧就松手，剩余的距离在松手时应用，没有达到触发高度
+        refreshLayout.onStopNestedScroll(content);
+        assertTrue(content.getTranslationY() <= OVER_HEIGHT - FINAL_HEIGHT);
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertEquals(0, content.getTranslationY(), 0.01f);
+        assertEquals(0, fixture.refreshCount);
+    }
+}
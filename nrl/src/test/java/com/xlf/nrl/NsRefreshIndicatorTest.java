@@ -0,0 +1,155 @@
+package com.xlf.nrl;
+
+import android.content.Context;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.xlf.nrl.RefreshLayoutFixture.SETTLE_IDLE_MS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 自定义指示视图代替LoadView时收到的回调
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class NsRefreshIndicatorTest {
+
+    private RefreshLayoutFixture fixture;
+    private NsRefreshLayout refreshLayout;
+    private RecordingIndicator indicator;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        fixture = new RefreshLayoutFixture();
+        refreshLayout = fixture.layout;
+        refreshLayout.setRefreshLayoutController(new NsRefreshLayout.NsRefreshLayoutController() {
+            @Override
+            public boolean isPullRefreshEnable() {
+                return true;
+            }
+
+            @Override
+            public boolean isPullLoadEnable() {
+                return false;
+            }
+        });
+        indicator = new RecordingIndicator(context);
+        refreshLayout.setHeaderIndicator(indicator);
+    }
+
+    @Test
+    public void refreshCycleNotifiesIndicator() {
+        assertSame(refreshLayout, indicator.getParent());
+        pullToRefresh();
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertEquals(1, indicator.startCount);
+        assertTrue(indicator.maxFraction > 0 && indicator.maxFraction <= 1);
+
+        refreshLayout.finishPullRefresh();
+        //收起的回弹过程中也逐帧回调，最后一帧完全收起
+        int pullCount = indicator.pullCount;
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertTrue(indicator.pullCount > pullCount + 1);
+        assertEquals(0, indicator.lastFraction, 0);
+        assertEquals(1, indicator.stopCount);
+        //状态只在变化时通知
+        assertEquals(Arrays.asList(NsRefreshIndicator.STATE_RELEASE,
+                NsRefreshIndicator.STATE_LOADING, NsRefreshIndicator.STATE_PULL), indicator.states);
+        //上拉加载不可用，没有创建任何LoadView
+        assertEquals(2, refreshLayout.getChildCount());
+    }
+
+    @Test
+    public void lateProgressIsIgnored() {
+        pullToRefresh();
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        refreshLayout.setRefreshProgress(42);
+        assertEquals(42, indicator.progress);
+
+        refreshLayout.finishPullRefresh();
+        //结束后才到达的进度不再切换为确定进度
+        refreshLayout.setRefreshProgress(80);
+        assertEquals(-1, indicator.progress);
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+
+        //下一次刷新从旋转动画开始
+        pullToRefresh();
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertEquals(2, indicator.startCount);
+        assertEquals(-1, indicator.progressAtStart);
+    }
+
+    private void pullToRefresh() {
+        fixture.up(fixture.drag(100, 10, 30));
+    }
+
+    private static class RecordingIndicator extends View implements NsRefreshIndicator {
+        final List<Integer> states = new ArrayList<Integer>();
+        float maxFraction;
+        float lastFraction;
+        int pullCount;
+        int startCount;
+        int stopCount;
+        /**
+         * 当前显示的确定进度，-1表示旋转动画
+         */
+        int progress = -1;
+        int progressAtStart = -1;
+
+        RecordingIndicator(Context context) {
+            super(context);
+        }
+
+        @Override
+        public View getView() {
+            return this;
+        }
+
+        @Override
+        public void onPull(float fraction) {
+            maxFraction = Math.max(maxFraction, fraction);
+            lastFraction = fraction;
+            pullCount++;
+        }
+
+        @Override
+        public void onStateChanged(int state) {
+            states.add(state);
+        }
+
+        @Override
+        public void start() {
+            startCount++;
+            progressAtStart = progress;
+        }
+
+        @Override
+        public void stop() {
+            stopCount++;
+        }
+
+        @Override
+        public void setProgress(int progress) {
+            this.progress = progress;
+        }
+
+        @Override
+        public void clearProgress() {
+            progress = -1;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.xlf.nrl;
+
+import android.content.Context;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.xlf.nrl.RefreshLayoutFixture.FRAME_MS;
+import static com.xlf.nrl.RefreshLayoutFixture.OVER_HEIGHT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 统计一次拖动过程中NsRefreshLayout的布局次数，防止拖动时重新布局
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class NsRefreshLayoutLayoutPassTest {
+
+    private RefreshLayoutFixture fixture;
+    private CountingRefreshLayout refreshLayout;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        refreshLayout = new CountingRefreshLayout(context);
+        fixture = new RefreshLayoutFixture(refreshLayout,
+                RefreshLayoutFixture.clickableView(context));
+        refreshLayout.measureCount = 0;
+    }
+
+    @Test
+    public void dragBelowThresholdDoesNotLayout() {
+        //默认密度下回弹高度为160px，拖动100px不会跨过阈值
+        drag(10, 10);
+        assertEquals(0, refreshLayout.measureCount);
+        //拖动确实应用到了内容视图和下拉刷新视图上
+        float offset = fixture.content.getTranslationY();
+        assertTrue(offset > 0 && offset < OVER_HEIGHT);
+        assertHeaderOffset(offset);
+    }
+
+    @Test
+    public void dragPastThresholdDoesNotLayout() {
+        //拖动300px，跨过阈值时文字切换只重绘
+        drag(30, 10);
+        assertEquals(0, refreshLayout.measureCount);
+        assertEquals(OVER_HEIGHT, fixture.content.getTranslationY(), 0.01f);
+        assertHeaderOffset(OVER_HEIGHT);
+    }
+
+    private void assertHeaderOffset(float offset) {
+        //子视图依次为内容视图、下拉刷新视图和上拉加载视图
+        View headerView = refreshLayout.getChildAt(1);
+        assertTrue(headerView instanceof LoadView);
+        assertEquals(View.VISIBLE, headerView.getVisibility());
+        assertEquals(offset - OVER_HEIGHT, headerView.getTranslationY(), 0.01f);
+    }
+
+    private void drag(int steps, int stepY) {
+        float y = 100;
+        fixture.down(y);
+        for (int i = 0; i < steps; i++) {
+            y += stepY;
+            fixture.move(y);
+            //拖动距离在下一帧应用
+            ShadowLooper.idleMainLooper(FRAME_MS);
+            fixture.layoutPass();
+        }
+    }
+
+    private static class CountingRefreshLayout extends NsRefreshLayout {
+        int measureCount;
+
+        CountingRefreshLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            measureCount++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+    }
+}
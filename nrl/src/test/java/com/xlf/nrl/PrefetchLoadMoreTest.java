@@ -0,0 +1,74 @@
+package com.xlf.nrl;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.ScrollView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.xlf.nrl.RefreshLayoutFixture.FINAL_HEIGHT;
+import static com.xlf.nrl.RefreshLayoutFixture.HEIGHT;
+import static com.xlf.nrl.RefreshLayoutFixture.SETTLE_IDLE_MS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 提前加载还没有完成时滚动到底部，露出加载中的上拉加载视图，不重复回调onLoadMore
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PrefetchLoadMoreTest {
+
+    private static final int CONTENT_HEIGHT = 2000;
+
+    private RefreshLayoutFixture fixture;
+    private NsRefreshLayout refreshLayout;
+    private ScrollView scrollView;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        scrollView = new ScrollView(context);
+        View child = new View(context);
+        child.setMinimumHeight(CONTENT_HEIGHT);
+        scrollView.addView(child);
+        fixture = new RefreshLayoutFixture(new NsRefreshLayout(context), scrollView);
+        refreshLayout = fixture.layout;
+        fixture.setAutoLoadMore(true);
+        refreshLayout.setLoadMorePrefetchDistance(100);
+        refreshLayout.onAttachedToWindow();
+    }
+
+    @Test
+    public void reachingEndRevealsPendingPrefetch() {
+        scrollView.scrollTo(0, CONTENT_HEIGHT - HEIGHT - 50);
+        refreshLayout.checkAutoLoadMore();
+        assertEquals(1, fixture.loadMoreCount);
+        assertTrue(refreshLayout.isLoadingMore());
+        //提前加载不显示上拉加载视图
+        assertEquals(1, refreshLayout.getChildCount());
+
+        scrollView.scrollTo(0, CONTENT_HEIGHT - HEIGHT);
+        refreshLayout.checkAutoLoadMore();
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertEquals(1, fixture.loadMoreCount);
+        assertTrue(refreshLayout.isLoadingMore());
+        View footerView = refreshLayout.getChildAt(1);
+        assertEquals(View.VISIBLE, footerView.getVisibility());
+        assertEquals(-FINAL_HEIGHT, scrollView.getTranslationY(), 0.01f);
+
+        refreshLayout.finishPullLoad();
+        ShadowLooper.idleMainLooper(SETTLE_IDLE_MS);
+        assertFalse(refreshLayout.isLoadingMore());
+        assertEquals(View.INVISIBLE, footerView.getVisibility());
+        assertEquals(0, scrollView.getTranslationY(), 0.01f);
+        assertEquals(1, fixture.loadMoreCount);
+    }
+}
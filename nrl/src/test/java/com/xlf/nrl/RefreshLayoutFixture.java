@@ -0,0 +1,145 @@
+package com.xlf.nrl;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+/**
+ * 测试共用的NsRefreshLayout：按480x800测量和布局好，统计刷新和加载更多的回调次数，
+ * 并提供模拟手势的方法
+ */
+class RefreshLayoutFixture {
+
+    static final int WIDTH = 480;
+    static final int HEIGHT = 800;
+    /**
+     * 默认密度下加载视图的回弹高度和最终高度
+     */
+    static final float OVER_HEIGHT = 160;
+    static final float FINAL_HEIGHT = 80;
+    static final long FRAME_MS = 16;
+    /**
+     * 大于回弹动画时长，保证动画执行完毕
+     */
+    static final long SETTLE_IDLE_MS = 1000;
+
+    final NsRefreshLayout layout;
+    final View content;
+    int refreshCount;
+    int loadMoreCount;
+    private long downTime;
+
+    /**
+     * 内容视图为一个可点击的View，不能滚动
+     */
+    RefreshLayoutFixture() {
+        this(new NsRefreshLayout(RuntimeEnvironment.application),
+                clickableView(RuntimeEnvironment.application));
+    }
+
+    RefreshLayoutFixture(NsRefreshLayout layout, View content) {
+        this.layout = layout;
+        this.content = content;
+        layout.addView(content, new FrameLayout.LayoutParams(
+                FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+        layout.onFinishInflate();
+        layoutPass();
+        layout.setRefreshLayoutListener(new NsRefreshLayout.NsRefreshLayoutListener() {
+            @Override
+            public void onRefresh() {
+                refreshCount++;
+            }
+
+            @Override
+            public void onLoadMore() {
+                loadMoreCount++;
+            }
+        });
+    }
+
+    static View clickableView(Context context) {
+        View view = new View(context);
+        view.setClickable(true);
+        return view;
+    }
+
+    /**
+     * 模拟一帧的测量和布局，只有请求过重新布局时才会执行onMeasure
+     */
+    void layoutPass() {
+        layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * 自动加载更多只能通过xml属性打开
+     */
+    void setAutoLoadMore(boolean autoLoadMore) {
+        ReflectionHelpers.setField(layout, "mAutoLoadMore", autoLoadMore);
+    }
+
+    /**
+     * 按下后向下拖动300px再抬起，超过触发高度；拖动中不执行帧回调，松手时一次应用
+     */
+    void pullToRefresh() {
+        float y = 100;
+        down(y);
+        for (int i = 0; i < 30; i++) {
+            y += 10;
+            move(y);
+        }
+        up(y);
+    }
+
+    /**
+     * 按下后逐帧拖动，不抬起
+     *
+     * @return 最后的位置
+     */
+    float drag(float startY, float stepY, int steps) {
+        float y = startY;
+        down(y);
+        for (int i = 0; i < steps; i++) {
+            y += stepY;
+            move(y);
+            ShadowLooper.idleMainLooper(FRAME_MS);
+        }
+        return y;
+    }
+
+    void down(float y) {
+        downTime = SystemClock.uptimeMillis();
+        dispatch(MotionEvent.ACTION_DOWN, y);
+    }
+
+    void move(float y) {
+        dispatch(MotionEvent.ACTION_MOVE, y);
+    }
+
+    void up(float y) {
+        dispatch(MotionEvent.ACTION_UP, y);
+    }
+
+    private void dispatch(int action, float y) {
+        MotionEvent event = obtain(action, y);
+        layout.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * 创建属于当前手势的事件，由调用者回收
+     */
+    MotionEvent obtain(int action, float y) {
+        if (action == MotionEvent.ACTION_DOWN) {
+            downTime = SystemClock.uptimeMillis();
+        }
+        return MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, WIDTH / 2, y, 0);
+    }
+}
@@ -0,0 +1,160 @@
+package com.xlf.nrl;
+
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.xlf.nrl.RefreshLayoutFixture.FRAME_MS;
+import static com.xlf.nrl.RefreshLayoutFixture.SETTLE_IDLE_MS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 连续刷新1000次，每次都使用同一个回弹动画，且动画结束后不再请求帧回调。
+ * 支持线程分配计数时同时检查预热后每次刷新不分配内存：每次刷新的分配减去同样手势、
+ * 同样帧数但不刷新的基准分配（Robolectric消息调度自身的开销），差值不超过nrl.allocBudget.cycle（字节），
+ * 默认值远小于一个ValueAnimator加监听器的分配
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SettleAnimatorReuseTest {
+
+    private static final int CYCLES = 1000;
+    private static final int MOVES = 30;
+    /**
+     * 前几次刷新包括类加载和创建加载视图等一次性开销，不计入预算
+     */
+    private static final int WARMUP = 10;
+    private static final long CYCLE_BUDGET = Long.getLong("nrl.allocBudget.cycle", 128);
+
+    private RefreshLayoutFixture fixture;
+    private NsRefreshLayout refreshLayout;
+    /**
+     * 刷新不可用的控件，只用来统计同样手势的基准分配
+     */
+    private NsRefreshLayout baselineLayout;
+    private FrameTicker baselineTicker;
+    private final MotionEvent[] events = new MotionEvent[MOVES + 2];
+
+    @Before
+    public void setUp() {
+        fixture = new RefreshLayoutFixture();
+        refreshLayout = fixture.layout;
+        baselineLayout = new RefreshLayoutFixture().layout;
+        baselineLayout.setRefreshLayoutController(new NsRefreshLayout.NsRefreshLayoutController() {
+            @Override
+            public boolean isPullRefreshEnable() {
+                return false;
+            }
+
+            @Override
+            public boolean isPullLoadEnable() {
+                return false;
+            }
+        });
+        baselineTicker = new FrameTicker(baselineLayout, new FrameTicker.Callback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+            }
+        });
+    }
+
+    @Test
+    public void refreshCyclesReuseAnimator() {
+        NsRefreshLayout.SettleAnimator animator = refreshLayout.headerSettleAnimator;
+        AllocationCounter counter = AllocationCounter.isSupported() ? new AllocationCounter() : null;
+        long total = 0;
+        for (int i = 0; i < CYCLES; i++) {
+            //事件提前创建，只统计分发、回弹和刷新回调的分配
+            obtainEvents();
+            long start = counter != null ? counter.allocatedBytes() : 0;
+            dispatchEvents(refreshLayout);
+            int settleFrames = idleCountingFrames(animator);
+            assertFalse(animator.isRunning());
+            refreshLayout.finishPullRefresh();
+            int resetFrames = idleCountingFrames(animator);
+            assertFalse(animator.isRunning());
+            long cycleBytes = counter != null ? counter.allocatedBytes() - start : 0;
+            recycleEvents();
+
+            if (counter != null) {
+                //同样的手势和帧数，不刷新
+                obtainEvents();
+                start = counter.allocatedBytes();
+                dispatchEvents(baselineLayout);
+                idleWithBaselineFrames(settleFrames);
+                idleWithBaselineFrames(resetFrames);
+                long baselineBytes = counter.allocatedBytes() - start;
+                recycleEvents();
+                if (i >= WARMUP) {
+                    total += cycleBytes - baselineBytes;
+                }
+            }
+        }
+        assertEquals(CYCLES, fixture.refreshCount);
+        assertSame(animator, refreshLayout.headerSettleAnimator);
+        if (counter != null) {
+            AllocationCounter.assertWithinBudget("refresh cycle over baseline",
+                    total / (CYCLES - WARMUP), CYCLE_BUDGET);
+        }
+    }
+
+    /**
+     * 逐帧执行，统计回弹动画执行了多少帧
+     */
+    private static int idleCountingFrames(NsRefreshLayout.SettleAnimator animator) {
+        int frames = 0;
+        for (long t = 0; t < SETTLE_IDLE_MS; t += FRAME_MS) {
+            if (animator.isRunning()) {
+                frames++;
+            }
+            ShadowLooper.idleMainLooper(FRAME_MS);
+        }
+        return frames;
+    }
+
+    /**
+     * 逐帧执行，前frames帧请求一次空的帧回调，与回弹动画的帧调度开销相同
+     */
+    private void idleWithBaselineFrames(int frames) {
+        int frame = 0;
+        for (long t = 0; t < SETTLE_IDLE_MS; t += FRAME_MS) {
+            if (frame++ < frames) {
+                baselineTicker.schedule();
+            }
+            ShadowLooper.idleMainLooper(FRAME_MS);
+        }
+    }
+
+    private void dispatchEvents(NsRefreshLayout layout) {
+        for (MotionEvent event : events) {
+            layout.dispatchTouchEvent(event);
+        }
+    }
+
+    /**
+     * 一次下拉刷新的手势：按下、拖动超过触发高度、抬起
+     */
+    private void obtainEvents() {
+        float y = 100;
+        events[0] = fixture.obtain(MotionEvent.ACTION_DOWN, y);
+        for (int i = 1; i <= MOVES; i++) {
+            y += 10;
+            events[i] = fixture.obtain(MotionEvent.ACTION_MOVE, y);
+        }
+        events[MOVES + 1] = fixture.obtain(MotionEvent.ACTION_UP, y);
+    }
+
+    private void recycleEvents() {
+        for (int i = 0; i < events.length; i++) {
+            events[i].recycle();
+            events[i] = null;
+        }
+    }
+}